@@ -0,0 +1,95 @@
+package ru.ifmo.ctddev.volhov.arrayset;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of navigation in views of a set of 1M integers, compared with {@link TreeSet}. The view of depth
+ * {@code d} is made by {@code d} calls alternating {@code descendingSet()} and {@code subSet} dropping the first
+ * and the last elements, so every operation of {@link ArraySet} must stay logarithmic in any chain of views.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NavigationBenchmark {
+    private static final int KEYS = 1 << 16;
+
+    @Param({"ArraySet", "TreeSet"})
+    public String impl;
+
+    @Param({"0", "1", "8", "32"})
+    public int depth;
+
+    @Param({"1000000"})
+    public int size;
+
+    private NavigableSet<Integer> view;
+    private Integer[] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(size);
+        List<Integer> elements = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            elements.add(random.nextInt(4 * size));
+        }
+        switch (impl) {
+            case "ArraySet":
+                view = new ArraySet<>(elements);
+                break;
+            case "TreeSet":
+                view = new TreeSet<>(elements);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown set: " + impl);
+        }
+        for (int d = 0; d < depth; d++) {
+            view = d % 2 == 0 ? view.descendingSet()
+                    : view.subSet(view.higher(view.first()), true, view.lower(view.last()), true);
+        }
+        // keys are within the view, since views of TreeSet reject others
+        int min = Math.min(view.first(), view.last()), max = Math.max(view.first(), view.last());
+        keys = new Integer[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = min + random.nextInt(max - min + 1);
+        }
+    }
+
+    private Integer key() {
+        next = (next + 1) & (KEYS - 1);
+        return keys[next];
+    }
+
+    @Benchmark
+    public Integer lower() {
+        return view.lower(key());
+    }
+
+    @Benchmark
+    public Integer higher() {
+        return view.higher(key());
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return view.contains(key());
+    }
+
+    @Benchmark
+    public boolean headSet() {
+        return view.headSet(key(), true).isEmpty();
+    }
+}
@@ -0,0 +1,69 @@
+package ru.ifmo.ctddev.volhov.arrayset;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a lookup of a random key in a set of random integers, with and without the search index
+ * of {@link ArrayWrapper#indexed(java.util.function.ToLongFunction)}. Sets of 10M elements and more are far larger
+ * than the CPU cache, so a binary search over the {@code Object[]} misses it at almost every step.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class SearchBenchmark {
+    private static final int KEYS = 1 << 20;
+
+    @Param({"100000", "10000000", "30000000"})
+    public int size;
+
+    @Param({"plain", "indexed"})
+    public String layout;
+
+    private ArraySet<Integer> set;
+    private Integer[] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(size);
+        Integer[] array = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = random.nextInt();
+        }
+        set = ArraySet.fromArray(array);
+        switch (layout) {
+            case "plain":
+                break;
+            case "indexed":
+                set = set.indexed(Integer::longValue);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown layout: " + layout);
+        }
+        keys = new Integer[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = random.nextInt();
+        }
+    }
+
+    @Benchmark
+    public Integer ceiling() {
+        next = (next + 1) & (KEYS - 1);
+        return set.ceiling(keys[next]);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        next = (next + 1) & (KEYS - 1);
+        return set.contains(keys[next]);
+    }
+}
@@ -0,0 +1,120 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+
+/**
+ * Generated files and trees for the benchmarks. Contents are pseudo-random with a fixed seed, so every run hashes
+ * the same bytes.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+class BenchTrees {
+    private static final int BLOCK = 1 << 20;
+
+    /**
+     * Stream that discards everything, to measure sinks without the disk.
+     */
+    static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+
+    private BenchTrees() {
+    }
+
+    /**
+     * Creates a file of the given size.
+     */
+    static void createFile(Path file, long size, long seed) throws IOException {
+        byte[] block = new byte[(int) Math.min(BLOCK, size)];
+        new Random(seed).nextBytes(block);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (long written = 0; written < size; ) {
+                ByteBuffer buffer = ByteBuffer.wrap(block, 0, (int) Math.min(block.length, size - written));
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a tree of {@code files} files of {@code fileSize} bytes.
+     * <ul>
+     * <li>{@code wide}: all files in the root directory;</li>
+     * <li>{@code deep}: a chain of directories with 4 files on every level;</li>
+     * <li>{@code balanced}: directories with 16 subdirectories or 16 files each.</li>
+     * </ul>
+     */
+    static Path createTree(String shape, int files, long fileSize) throws IOException {
+        Path root = Files.createTempDirectory("walk-bench");
+        switch (shape) {
+            case "wide":
+                for (int i = 0; i < files; i++) {
+                    createFile(root.resolve("f" + i), fileSize, i);
+                }
+                break;
+            case "deep":
+                Path dir = root;
+                for (int i = 0; i < files; i++) {
+                    if (i > 0 && i % 4 == 0) {
+                        dir = Files.createDirectory(dir.resolve("d"));
+                    }
+                    createFile(dir.resolve("f" + i), fileSize, i);
+                }
+                break;
+            case "balanced":
+                createBalanced(root, 0, files, fileSize);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown tree shape: " + shape);
+        }
+        return root;
+    }
+
+    private static void createBalanced(Path dir, int from, int to, long fileSize) throws IOException {
+        if (to - from <= 16) {
+            for (int i = from; i < to; i++) {
+                createFile(dir.resolve("f" + i), fileSize, i);
+            }
+            return;
+        }
+        int step = (to - from + 15) / 16;
+        for (int i = from, d = 0; i < to; i += step, d++) {
+            createBalanced(Files.createDirectory(dir.resolve("d" + d)), i, Math.min(to, i + step), fileSize);
+        }
+    }
+
+    /**
+     * Removes the file or the tree.
+     */
+    static void delete(Path root) throws IOException {
+        if (root == null || !Files.exists(root)) return;
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,59 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing throughput of a single file, from 4 KB to 1 GB, for every algorithm.
+ * <p>
+ * The file is written once per trial and is read from the page cache afterwards, so the numbers are the CPU cost
+ * of reading and hashing. Throughput in bytes per second is {@code size} times the score.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashBenchmark {
+    @Param({"4096", "65536", "1048576", "16777216", "268435456", "1073741824"})
+    public long size;
+
+    @Param({"fnv32", "fnv1a64", "crc32c", "xxhash64", "sha256"})
+    public String algorithm;
+
+    private Path file;
+    private HashAlgorithm hashAlgorithm;
+    private MerkleHasher merkle;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("walk-bench", ".bin");
+        BenchTrees.createFile(file, size, size);
+        hashAlgorithm = HashAlgorithm.forName(algorithm);
+        merkle = new MerkleHasher(hashAlgorithm, MerkleHasher.DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public byte[] plain() throws IOException {
+        return HashEngine.hash(file, hashAlgorithm);
+    }
+
+    @Benchmark
+    public byte[] merkle() throws IOException {
+        return merkle.hash(file);
+    }
+}
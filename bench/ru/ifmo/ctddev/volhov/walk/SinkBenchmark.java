@@ -0,0 +1,92 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing the output of a walk of {@code lines} files, digests being already computed.
+ * <ul>
+ * <li>{@code writer}: {@link java.io.Writer} with a formatted string per line, as the walk did originally;</li>
+ * <li>{@code hashsum}: {@link HashsumWriter};</li>
+ * <li>{@code snapshot}: {@link SnapshotWriter} to a temporary file, including sorting.</li>
+ * </ul>
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SinkBenchmark {
+    @Param({"writer", "hashsum", "snapshot"})
+    public String sink;
+
+    @Param({"100000"})
+    public int lines;
+
+    private Path[] paths;
+    private byte[][] digests;
+    private Path snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(lines);
+        paths = new Path[lines];
+        digests = new byte[lines][4];
+        for (int i = 0; i < lines; i++) {
+            paths[i] = Paths.get("/data/walk-bench/d" + random.nextInt(1000), "file-" + random.nextInt() + ".bin");
+            random.nextBytes(digests[i]);
+        }
+        snapshot = Files.createTempFile("walk-bench", ".snapshot");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        switch (sink) {
+            case "writer":
+                try (Writer out = new OutputStreamWriter(new BenchTrees.NullOutputStream(), StandardCharsets.UTF_8)) {
+                    for (int i = 0; i < lines; i++) {
+                        int hash = (digests[i][0] & 0xff) << 24 | (digests[i][1] & 0xff) << 16
+                                | (digests[i][2] & 0xff) << 8 | (digests[i][3] & 0xff);
+                        out.write(String.format("%8s", Integer.toHexString(hash)).replace(' ', '0') + " "
+                                + paths[i].toString() + "\n");
+                    }
+                }
+                return lines;
+            case "hashsum":
+                try (HashsumWriter out = new HashsumWriter(new BenchTrees.NullOutputStream())) {
+                    for (int i = 0; i < lines; i++) {
+                        out.write(digests[i], paths[i]);
+                    }
+                    return out.position();
+                }
+            case "snapshot":
+                try (SnapshotWriter out = new SnapshotWriter(snapshot, "fnv32", 4, SnapshotWriter.DEFAULT_RUN_BYTES)) {
+                    for (int i = 0; i < lines; i++) {
+                        out.write(digests[i], paths[i]);
+                    }
+                    out.complete();
+                }
+                return Files.size(snapshot);
+            default:
+                throw new IllegalArgumentException("Unknown sink: " + sink);
+        }
+    }
+}
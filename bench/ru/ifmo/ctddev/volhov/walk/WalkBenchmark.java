@@ -0,0 +1,82 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of a whole walk over generated trees of different shapes, in every walk mode, with output discarded.
+ * Shows the cost of traversal and of the per-file overhead of each mode, since files are small.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WalkBenchmark {
+    @Param({"wide", "deep", "balanced"})
+    public String shape;
+
+    @Param({"sequential", "parallel", "async"})
+    public String mode;
+
+    @Param({"4096"})
+    public int files;
+
+    @Param({"4096"})
+    public long fileSize;
+
+    private Path root;
+    private FileHasher hasher;
+    private ForkJoinPool pool;
+    private ExecutorService ioExecutor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = BenchTrees.createTree(shape, files, fileSize);
+        hasher = new FileHasher(HashAlgorithm.FNV32, null);
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        ioExecutor = Executors.newFixedThreadPool(16);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.shutdownNow();
+        ioExecutor.shutdownNow();
+        BenchTrees.delete(root);
+    }
+
+    @Benchmark
+    public long walk() throws IOException {
+        HashsumWriter out = new HashsumWriter(new BenchTrees.NullOutputStream());
+        switch (mode) {
+            case "sequential":
+                Files.walkFileTree(root, new HashsumFileVisitor(out, hasher));
+                break;
+            case "parallel":
+                ParallelHashsumFileVisitor parallel = new ParallelHashsumFileVisitor(out, pool, 4096, hasher);
+                Files.walkFileTree(root, parallel);
+                parallel.finish();
+                break;
+            case "async":
+                AsyncHashsumFileVisitor async = new AsyncHashsumFileVisitor(out, hasher, ioExecutor, pool, 16, 4096);
+                Files.walkFileTree(root, async);
+                async.finish();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown walk mode: " + mode);
+        }
+        out.flush();
+        return out.position();
+    }
+}
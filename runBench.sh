@@ -0,0 +1,39 @@
+#!/bin/sh
+
+# JMH jars (jmh-core, jmh-generator-annprocess, jopt-simple, commons-math3) are taken from $JMH_LIB
+jmh_lib=${JMH_LIB:-"../java-advanced-2015/lib"}
+
+case "$1" in
+    Hash|Walk|Sink)
+        pattern="ru.ifmo.ctddev.volhov.walk."$1"Benchmark"
+        ;;
+    Search|Navigation)
+        pattern="ru.ifmo.ctddev.volhov.arrayset."$1"Benchmark"
+        ;;
+    All)
+        pattern="ru.ifmo.ctddev.volhov.*Benchmark"
+        ;;
+    *) echo "Usage: sh runBench.sh [Hash|Walk|Sink|Search|Navigation|All] [jmh options]"
+       exit
+       ;;
+esac
+shift
+
+jars=$(find $jmh_lib -name "*.jar")
+classpath=""
+for i in $jars
+do
+    classpath=$classpath$i":"
+done
+
+out="out/bench"
+rm -rf $out
+mkdir -p $out
+echo "Compiling benchmarks..."
+javac -encoding UTF-8 -cp $classpath -d $out src/ru/ifmo/ctddev/volhov/walk/*.java bench/ru/ifmo/ctddev/volhov/walk/*.java \
+    src/ru/ifmo/ctddev/volhov/arrayset/*.java bench/ru/ifmo/ctddev/volhov/arrayset/*.java || exit 1
+
+init="java -cp "$out":"$classpath" org.openjdk.jmh.Main "$pattern" "$@
+
+echo $init
+$init
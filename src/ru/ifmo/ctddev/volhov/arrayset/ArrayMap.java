@@ -0,0 +1,347 @@
+package ru.ifmo.ctddev.volhov.arrayset;
+
+import java.util.*;
+
+/**
+ * Immutable sorted map of keys and values kept in two parallel arrays, the keys in an {@link ArrayWrapper}.
+ * <p>
+ * Views are taken in {@code O(log n)} without copying, as in {@link ArraySet}: a view is a range of the wrapper,
+ * and {@link #descendingMap()} is a view of the reversed wrapper, so a value is found by the index of its key in
+ * the array, {@link ArrayWrapper#revIndex(int)}. {@link #navigableKeySet()} is an {@link ArraySet} over the same
+ * wrapper. Maps are built by {@link Builder}. Values may be {@code null}, keys may not.
+ * <p>
+ * The map takes two references per entry, against about 40 bytes per entry of {@link TreeMap}.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+@SuppressWarnings({"NullableProblems", "unchecked"})
+public class ArrayMap<K, V> extends AbstractMap<K, V> implements NavigableMap<K, V> {
+    private final ArrayWrapper<K> keys;
+    private final Object[] values; // by indices of the array of keys
+    private final int leftBound, rightBound; // [..)
+    private final boolean comparatorNative;
+
+    public ArrayMap() {
+        this(new ArrayWrapper<K>((K[]) new Object[0], (k1, k2) -> 0), new Object[0], 0, 0, false);
+    }
+
+    private ArrayMap(ArrayWrapper<K> keys, Object[] values, int leftBound, int rightBound, boolean isCompNative) {
+        this.keys = keys;
+        this.values = values;
+        this.leftBound = leftBound;
+        this.rightBound = leftBound >= rightBound ? leftBound : rightBound;
+        this.comparatorNative = isCompNative;
+    }
+
+    /**
+     * Builder of a map with keys ordered by the comparator.
+     */
+    public static <K, V> Builder<K, V> builder(Comparator<K> comparator) {
+        return new Builder<>(comparator, false);
+    }
+
+    /**
+     * Builder of a map with keys in natural order.
+     */
+    public static <K extends Comparable<? super K>, V> Builder<K, V> builder() {
+        return new Builder<>((k, k1) -> k.compareTo(k1), true);
+    }
+
+    /**
+     * Collects entries in any order and sorts them once in {@link #build()}. Of entries with equal keys, the last
+     * one put is kept, as in {@link Map#put}.
+     */
+    public static final class Builder<K, V> {
+        private final Comparator<K> comparator;
+        private final boolean comparatorNative;
+        private final List<Entry<K, V>> entries = new ArrayList<>();
+
+        private Builder(Comparator<K> comparator, boolean isCompNative) {
+            this.comparator = comparator;
+            this.comparatorNative = isCompNative;
+        }
+
+        public Builder<K, V> put(K key, V value) {
+            entries.add(new SimpleImmutableEntry<>(Objects.requireNonNull(key), value));
+            return this;
+        }
+
+        public Builder<K, V> putAll(Map<? extends K, ? extends V> map) {
+            for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+            return this;
+        }
+
+        /**
+         * Builds the map of the entries put so far; the builder may be used further.
+         */
+        public ArrayMap<K, V> build() {
+            Entry<K, V>[] sorted = entries.toArray((Entry<K, V>[]) new Entry<?, ?>[entries.size()]);
+            // both sorts are stable, so the last of equal keys stays last
+            Comparator<Entry<K, V>> byKey = (e, e1) -> comparator.compare(e.getKey(), e1.getKey());
+            if (sorted.length >= ArrayWrapper.PARALLEL_SORT_THRESHOLD) {
+                Arrays.parallelSort(sorted, byKey);
+            } else {
+                Arrays.sort(sorted, byKey);
+            }
+            K[] keys = (K[]) new Object[sorted.length];
+            Object[] values = new Object[sorted.length];
+            int length = 0;
+            for (Entry<K, V> entry : sorted) {
+                if (length == 0 || comparator.compare(keys[length - 1], entry.getKey()) != 0) {
+                    keys[length++] = entry.getKey();
+                }
+                values[length - 1] = entry.getValue();
+            }
+            return new ArrayMap<>(new ArrayWrapper<>(keys, length, comparator), values, 0, length,
+                    comparatorNative);
+        }
+    }
+
+    /**
+     * First index of the view whose key is not before {@code key} (after it if {@code strict}),
+     * {@code rightBound} if there is none.
+     */
+    private int search(K key, boolean strict) {
+        return keys.lowerBound(leftBound, rightBound, key, strict);
+    }
+
+    private boolean inBounds(int index) {
+        return index >= leftBound && index < rightBound;
+    }
+
+    private V valueAt(int index) {
+        return (V) values[keys.revIndex(index)];
+    }
+
+    private Entry<K, V> entryOrNull(int index) {
+        return inBounds(index) ? new SimpleImmutableEntry<>(keys.get(index), valueAt(index)) : null;
+    }
+
+    private K keyOrNull(int index) {
+        return inBounds(index) ? keys.get(index) : null;
+    }
+
+    /**
+     * Index of the key in the view, or {@code -1}.
+     */
+    private int indexOf(Object key) {
+        if (key == null) throw new NullPointerException();
+        K k = (K) key; //ClassCastException
+        int index = search(k, false);
+        return inBounds(index) && keys.comparator.compare(keys.get(index), k) == 0 ? index : -1;
+    }
+
+    @Override
+    public V get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : valueAt(index);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return rightBound - leftBound;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public Entry<K, V> lowerEntry(K key) {
+        return entryOrNull(search(key, false) - 1);
+    }
+
+    @Override
+    public K lowerKey(K key) {
+        return keyOrNull(search(key, false) - 1);
+    }
+
+    @Override
+    public Entry<K, V> floorEntry(K key) {
+        return entryOrNull(search(key, true) - 1);
+    }
+
+    @Override
+    public K floorKey(K key) {
+        return keyOrNull(search(key, true) - 1);
+    }
+
+    @Override
+    public Entry<K, V> ceilingEntry(K key) {
+        return entryOrNull(search(key, false));
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+        return keyOrNull(search(key, false));
+    }
+
+    @Override
+    public Entry<K, V> higherEntry(K key) {
+        return entryOrNull(search(key, true));
+    }
+
+    @Override
+    public K higherKey(K key) {
+        return keyOrNull(search(key, true));
+    }
+
+    @Override
+    public Entry<K, V> firstEntry() {
+        return entryOrNull(leftBound);
+    }
+
+    @Override
+    public Entry<K, V> lastEntry() {
+        return entryOrNull(rightBound - 1);
+    }
+
+    @Override
+    public K firstKey() {
+        if (isEmpty()) throw new NoSuchElementException();
+        return keys.get(leftBound);
+    }
+
+    @Override
+    public K lastKey() {
+        if (isEmpty()) throw new NoSuchElementException();
+        return keys.get(rightBound - 1);
+    }
+
+    @Override
+    public Entry<K, V> pollFirstEntry() {
+        throw new UnsupportedOperationException("ArrayMap is immutable");
+    }
+
+    @Override
+    public Entry<K, V> pollLastEntry() {
+        throw new UnsupportedOperationException("ArrayMap is immutable");
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new Iterator<Entry<K, V>>() {
+                    private int pointer = leftBound;
+
+                    @Override
+                    public boolean hasNext() {
+                        return pointer < rightBound;
+                    }
+
+                    @Override
+                    public Entry<K, V> next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        return entryOrNull(pointer++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ArrayMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * Values in the order of keys, as a random access list over the array of values.
+     */
+    @Override
+    public List<V> values() {
+        return new AbstractList<V>() {
+            @Override
+            public V get(int index) {
+                if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("Index: " + index);
+                return valueAt(leftBound + index);
+            }
+
+            @Override
+            public int size() {
+                return ArrayMap.this.size();
+            }
+        };
+    }
+
+    @Override
+    public ArraySet<K> keySet() {
+        return navigableKeySet();
+    }
+
+    @Override
+    public ArraySet<K> navigableKeySet() {
+        return ArraySet.of(keys, leftBound, rightBound, comparatorNative);
+    }
+
+    @Override
+    public ArraySet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    @Override
+    public ArrayMap<K, V> descendingMap() {
+        return new ArrayMap<>(keys.reversedArray(), values,
+                keys.size() - rightBound, keys.size() - leftBound, comparatorNative);
+    }
+
+    @Override
+    public ArrayMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        if (fromKey == null || toKey == null) throw new NullPointerException();
+        if (compare(fromKey, toKey) > 0)
+            throw new IllegalArgumentException("First key must be less than the second one");
+        int from = search(fromKey, !fromInclusive);
+        return new ArrayMap<>(keys, values, from, Math.max(from, search(toKey, toInclusive)), comparatorNative);
+    }
+
+    @Override
+    public ArrayMap<K, V> headMap(K toKey, boolean inclusive) {
+        return new ArrayMap<>(keys, values, leftBound, search(toKey, inclusive), comparatorNative);
+    }
+
+    @Override
+    public ArrayMap<K, V> tailMap(K fromKey, boolean inclusive) {
+        return new ArrayMap<>(keys, values, search(fromKey, !inclusive), rightBound, comparatorNative);
+    }
+
+    @Override
+    public ArrayMap<K, V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public ArrayMap<K, V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    @Override
+    public ArrayMap<K, V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    /**
+     * Comparison in the order of this view.
+     */
+    private int compare(K k, K k1) {
+        return keys.reversed ? keys.comparator.compare(k1, k) : keys.comparator.compare(k, k1);
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        if (keys.reversed) {
+            return comparatorNative ? Collections.reverseOrder() : Collections.reverseOrder(keys.comparator);
+        }
+        if (!comparatorNative) return keys.comparator;
+        else return null;
+    }
+}
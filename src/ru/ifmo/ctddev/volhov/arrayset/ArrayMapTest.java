@@ -0,0 +1,107 @@
+package ru.ifmo.ctddev.volhov.arrayset;
+
+import java.util.*;
+
+import static ru.ifmo.ctddev.volhov.arrayset.SetChecks.*;
+
+/**
+ * Compares maps built by {@link ArrayMap.Builder} and chains of their views with {@link TreeMap}. Keys are put
+ * several times, the last value of a key must win; some values are {@code null}.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class ArrayMapTest {
+    public static void main(String[] args) {
+        Random random = new Random(24);
+        List<Integer> probes = range(-5, 55);
+        for (int test = 0; test < 2000; test++) {
+            boolean natural = random.nextBoolean();
+            ArrayMap.Builder<Integer, String> builder = natural ? ArrayMap.<Integer, String>builder()
+                    : ArrayMap.builder(Comparator.<Integer>reverseOrder());
+            TreeMap<Integer, String> expected = natural ? new TreeMap<>()
+                    : new TreeMap<>(Comparator.<Integer>reverseOrder());
+            for (int i = random.nextInt(60); i > 0; i--) {
+                int key = random.nextInt(50);
+                String value = random.nextInt(10) == 0 ? null : "v" + i;
+                builder.put(key, value);
+                expected.put(key, value);
+            }
+            check(builder.build(), expected, probes, random, 5);
+        }
+        // the empty map, as the empty ArraySet, holds its keys equal
+        check(new ArrayMap<>(), new TreeMap<>((a, b) -> 0), probes, random, 2);
+
+        Comparator<Integer> byRemainder = (a, b) -> a % 7 != b % 7 ? Integer.compare(b % 7, a % 7)
+                : Integer.compare(a, b);
+        ArrayMap.Builder<Integer, String> builder = ArrayMap.builder(byRemainder);
+        TreeMap<Integer, String> expected = new TreeMap<>(byRemainder);
+        for (int i = 0; i < 50; i++) {
+            builder.put(i, "v" + i);
+            expected.put(i, "v" + i);
+        }
+        NavigableMap<Integer, String> descending = builder.build().descendingMap();
+        List<Integer> keys = new ArrayList<>(expected.descendingMap().keySet());
+        List<Integer> shuffled = new ArrayList<>(keys);
+        Collections.shuffle(shuffled, random);
+        shuffled.sort(descending.comparator());
+        equal(shuffled, keys, "keys sorted by the comparator of a descending map");
+        equal(new ArrayList<>(descending.keySet()), keys, "keys of a descending map");
+        equal(outcome(descending::pollFirstEntry), UnsupportedOperationException.class, "pollFirstEntry");
+        System.out.println("OK");
+    }
+
+    private static void check(NavigableMap<Integer, String> actual, NavigableMap<Integer, String> expected,
+                              List<Integer> probes, Random random, int depth) {
+        equal(new ArrayList<>(actual.entrySet()), new ArrayList<>(expected.entrySet()), "entries");
+        equal(new ArrayList<>(actual.values()), new ArrayList<>(expected.values()), "values");
+        equal(actual, expected, "equals");
+        equal(actual.hashCode(), expected.hashCode(), "hashCode");
+        equal(actual.firstEntry(), expected.firstEntry(), "firstEntry");
+        equal(actual.lastEntry(), expected.lastEntry(), "lastEntry");
+        sameSet(actual.navigableKeySet(), expected.navigableKeySet(), probes);
+        sameSet(actual.descendingKeySet(), expected.descendingKeySet(), probes);
+        for (int key : probes) {
+            equal(actual.get(key), expected.get(key), "get " + key);
+            equal(actual.containsKey(key), expected.containsKey(key), "containsKey " + key);
+            equal(actual.lowerEntry(key), expected.lowerEntry(key), "lowerEntry " + key);
+            equal(actual.floorEntry(key), expected.floorEntry(key), "floorEntry " + key);
+            equal(actual.ceilingEntry(key), expected.ceilingEntry(key), "ceilingEntry " + key);
+            equal(actual.higherEntry(key), expected.higherEntry(key), "higherEntry " + key);
+        }
+        if (depth == 0) return;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            int from = probes.get(random.nextInt(probes.size())), to = probes.get(random.nextInt(probes.size()));
+            Comparator<? super Integer> order = expected.comparator() == null ? Comparator.naturalOrder()
+                    : expected.comparator();
+            if (order.compare(from, to) > 0) {
+                int t = from;
+                from = to;
+                to = t;
+            }
+            boolean fromInclusive = random.nextBoolean(), toInclusive = random.nextBoolean();
+            int kind = random.nextInt(4);
+            NavigableMap<Integer, String> expectedView;
+            try {
+                expectedView = view(expected, kind, from, fromInclusive, to, toInclusive);
+            } catch (IllegalArgumentException e) {
+                continue; // the bound is out of the TreeMap view
+            }
+            check(view(actual, kind, from, fromInclusive, to, toInclusive), expectedView, probes, random, depth - 1);
+        }
+    }
+
+    private static NavigableMap<Integer, String> view(NavigableMap<Integer, String> map, int kind, int from,
+                                                      boolean fromInclusive, int to, boolean toInclusive) {
+        switch (kind) {
+            case 0:
+                return map.descendingMap();
+            case 1:
+                return map.subMap(from, fromInclusive, to, toInclusive);
+            case 2:
+                return map.headMap(to, toInclusive);
+            default:
+                return map.tailMap(from, fromInclusive);
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package ru.ifmo.ctddev.volhov.arrayset;
 
 import java.util.*;
-import java.util.function.IntPredicate;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
 /**
  * @author volhovm
@@ -21,14 +23,8 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     }
 
     public ArraySet(Collection<T> collection, Comparator<T> comparator) {
-
-        TreeSet<T> treeSet = new TreeSet<>(comparator);
-        treeSet.addAll(collection);
-        T[] tempArray = (T[]) new Object[treeSet.size()];
-        treeSet.toArray(tempArray);
-
-        this.array = new ArrayWrapper<T>(tempArray, comparator);
-        array.sort();
+        T[] tempArray = (T[]) collection.toArray();
+        this.array = new ArrayWrapper<T>(tempArray, ArrayWrapper.sortUnique(tempArray, comparator), comparator);
         leftBound = 0;
         rightBound = array.size();
         comparatorNative = false;
@@ -43,6 +39,48 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         this(new ArrayWrapper<T>(array, comparator), 0, array.length, false);
     }
 
+    /**
+     * Builds a set of the array, taking ownership of it: the array is sorted and deduplicated in place,
+     * with no copies. The first of equal elements is kept.
+     */
+    public static <T> ArraySet<T> fromArray(T[] array, Comparator<T> comparator) {
+        return of(new ArrayWrapper<T>(array, ArrayWrapper.sortUnique(array, comparator), comparator), false);
+    }
+
+    public static <T extends Comparable<? super T>> ArraySet<T> fromArray(T[] array) {
+        return of(new ArrayWrapper<T>(array, ArrayWrapper.sortUnique(array, naturalOrder()), naturalOrder()), true);
+    }
+
+    /**
+     * Builds a set of the array already sorted by the comparator, taking ownership of it:
+     * the array is only deduplicated in place, in one pass.
+     *
+     * @throws IllegalArgumentException if the array is not sorted
+     */
+    public static <T> ArraySet<T> fromSorted(T[] array, Comparator<T> comparator) {
+        return of(new ArrayWrapper<T>(array, ArrayWrapper.unique(array, comparator, true), comparator), false);
+    }
+
+    public static <T extends Comparable<? super T>> ArraySet<T> fromSorted(T[] array) {
+        return of(new ArrayWrapper<T>(array, ArrayWrapper.unique(array, naturalOrder(), true), naturalOrder()),
+                true);
+    }
+
+    static <T> ArraySet<T> of(ArrayWrapper<T> array, boolean isCompNative) {
+        return of(array, 0, array.size(), isCompNative);
+    }
+
+    /**
+     * View of the range {@code [leftBound, rightBound)} of the wrapper, in its order.
+     */
+    static <T> ArraySet<T> of(ArrayWrapper<T> array, int leftBound, int rightBound, boolean isCompNative) {
+        return new ArraySet<>(array, leftBound, rightBound, isCompNative);
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<T> naturalOrder() {
+        return (t, t1) -> t.compareTo(t1);
+    }
+
     private ArraySet(ArrayWrapper<T> array, int leftBound, int rightBound, boolean isCompNative) {
         this.array = array;
         this.leftBound = leftBound;
@@ -50,24 +88,21 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         this.comparatorNative = isCompNative;
     }
 
-    private int search(T t, IntPredicate predicate) {
-        int i = array.binarySearch(leftBound, rightBound, t);
-        if (array.reversed) {
-            predicate = predicate.negate();
-        }
+    /**
+     * First index of the view whose element is not before {@code t} (after it if {@code strict}),
+     * {@code rightBound} if there is none; binary search within the view bounds.
+     */
+    private int search(T t, boolean strict) {
+        return array.lowerBound(leftBound, rightBound, t, strict);
+    }
 
-        if (predicate.test(-1)) {
-            if (i >= rightBound) i = rightBound - 1;
-            for (; i >= 0; i--) {
-                if (predicate.test(array.comparator.compare(array.get(i), t))) return i;
-            }
-            return -1;
-        } else if (predicate.test(1)) {
-            for (; i < array.size(); i++) {
-                if (predicate.test(array.comparator.compare(array.get(i), t))) return i;
-            }
-            return rightBound;
-        } else return i;
+    /**
+     * Same set with a cache-friendly search index over order-preserving prefixes of the elements,
+     * see {@link ArrayWrapper#indexed(ToLongFunction)}. Lookups of the returned set and of its views use the index,
+     * which pays off for sets much larger than the CPU cache.
+     */
+    public ArraySet<T> indexed(ToLongFunction<? super T> prefix) {
+        return new ArraySet<>(array.indexed(prefix), leftBound, rightBound, comparatorNative);
     }
 
     private T getOrNull(int index) {
@@ -77,22 +112,22 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
 
     @Override
     public T lower(T t) {
-        return getOrNull(search(t, i -> i < 0));
+        return getOrNull(search(t, false) - 1);
     }
 
     @Override
     public T floor(T t) {
-        return getOrNull(search(t, i -> i <= 0));
+        return getOrNull(search(t, true) - 1);
     }
 
     @Override
     public T ceiling(T t) {
-        return getOrNull(search(t, i -> i >= 0));
+        return getOrNull(search(t, false));
     }
 
     @Override
     public T higher(T t) {
-        return getOrNull(search(t, i -> i > 0));
+        return getOrNull(search(t, true));
     }
 
     @Override
@@ -119,7 +154,7 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     public boolean contains(Object o) {
         if (o == null) throw new NullPointerException();
         T item = (T) o; //ClassCastException
-        int index = search(item, i -> i == 0);
+        int index = search(item, false);
         return inBounds(index) && array.comparator.compare(array.get(index), item) == 0;
     }
 
@@ -127,6 +162,56 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         return index >= leftBound && index < rightBound;
     }
 
+    /**
+     * @return rank of the element in the view, i.e. the number of elements before it, or {@code -1} if there is
+     * no such element
+     */
+    public int indexOf(Object o) {
+        if (o == null) throw new NullPointerException();
+        T item = (T) o; //ClassCastException
+        int index = search(item, false);
+        return inBounds(index) && array.comparator.compare(array.get(index), item) == 0 ? index - leftBound : -1;
+    }
+
+    /**
+     * @return element of the given rank in the view
+     * @throws IndexOutOfBoundsException if the rank is not in {@code [0, size())}
+     */
+    public T get(int rank) {
+        if (rank < 0 || rank >= size()) throw new IndexOutOfBoundsException("Rank: " + rank + ", size: " + size());
+        return array.get(leftBound + rank);
+    }
+
+    /**
+     * Number of elements of {@link #subSet(Object, boolean, Object, boolean)} with the same arguments, found by
+     * two binary searches without creating the view.
+     */
+    public int countInRange(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        if (from == null || to == null) throw new NullPointerException();
+        if (compare(from, to) > 0)
+            throw new IllegalArgumentException("First element must be less than the second one");
+        return Math.max(0, search(to, toInclusive) - search(from, !fromInclusive));
+    }
+
+    /**
+     * Number of elements in {@code [from, to)}, see {@link #countInRange(Object, boolean, Object, boolean)}.
+     */
+    public int countInRange(T from, T to) {
+        return countInRange(from, true, to, false);
+    }
+
+    /**
+     * View of the elements of ranks {@code [fromRank, toRank)}, in {@code O(1)}.
+     *
+     * @throws IndexOutOfBoundsException if {@code 0 <= fromRank <= toRank <= size()} does not hold
+     */
+    public ArraySet<T> subSetByRank(int fromRank, int toRank) {
+        if (fromRank < 0 || toRank > size() || fromRank > toRank) {
+            throw new IndexOutOfBoundsException("Ranks: [" + fromRank + ", " + toRank + "), size: " + size());
+        }
+        return new ArraySet<>(array, leftBound + fromRank, leftBound + toRank, comparatorNative);
+    }
+
     @Override
     public Iterator<T> iterator() {
         return new Iterator<T>() {
@@ -139,15 +224,87 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
 
             @Override
             public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
                 return array.get(++pointer);
             }
+
+            @Override
+            public void forEachRemaining(Consumer<? super T> action) {
+                int from = pointer + 1;
+                pointer = rightBound - 1;
+                array.forEach(from, rightBound, action);
+            }
         };
     }
 
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        array.forEach(leftBound, rightBound, action);
+    }
+
+    /**
+     * Spliterator splitting the index range in halves, so that parallel streams over the set scale.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new ArraySpliterator<>(array, leftBound, rightBound, comparator());
+    }
+
+    private static final class ArraySpliterator<T> implements Spliterator<T> {
+        private final ArrayWrapper<T> array;
+        private final Comparator<? super T> comparator;
+        private int index;
+        private final int fence;
+
+        ArraySpliterator(ArrayWrapper<T> array, int index, int fence, Comparator<? super T> comparator) {
+            this.array = array;
+            this.index = index;
+            this.fence = fence;
+            this.comparator = comparator;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int from = index, mid = (index + fence) >>> 1;
+            if (from >= mid) return null;
+            index = mid;
+            return new ArraySpliterator<>(array, from, mid, comparator);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (index >= fence) return false;
+            action.accept(array.get(index++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            int from = index;
+            index = fence;
+            array.forEach(from, fence, action);
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return SIZED | SUBSIZED | SORTED | ORDERED | DISTINCT | IMMUTABLE;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return comparator;
+        }
+    }
+
     @Override
     public ArraySet<T> descendingSet() {
         return new ArraySet<T>(array.reversedArray(),
-                leftBound, rightBound, comparatorNative);
+                array.size() - rightBound, array.size() - leftBound, comparatorNative);
     }
 
     @Override
@@ -155,44 +312,37 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         return descendingSet().iterator();
     }
 
-    private ArraySet<T> subSet(int from, int to) {
-        if (from > to) throw new IllegalArgumentException("'from' is greater than 'to'");
-        if (from < leftBound || to > rightBound)
-            throw new IllegalArgumentException("Given element is outside the range");
-        return new ArraySet<T>(array, from, to, comparatorNative);
-    }
-
     @Override
     public ArraySet<T> subSet(T t, boolean b, T e1, boolean b1) {
         if (t == null || e1 == null) throw new NullPointerException();
-        if (array.comparator.compare(t, e1) > 0)
+        if (compare(t, e1) > 0)
             throw new IllegalArgumentException("First element must be less than the second one");
-        int from = search(t, i -> b ? (i >= 0) : (i > 0));
-        int to = search(e1, i -> b1 ? (i <= 0) : (i < 0));
-//        if (!contains(e1)) to--;
-        try {
-            return new ArraySet<>(array, from, to + 1, comparatorNative);
-        } catch (Exception e) {
-            System.out.println("Exception in subset: " + t + " " + e1 + " " + b + " " + b1);
-            System.out.println(dumpS());
-            throw e;
-        }
+        int from = search(t, !b);
+        return new ArraySet<>(array, from, Math.max(from, search(e1, b1)), comparatorNative);
     }
 
     @Override
     public ArraySet<T> headSet(T t, boolean b) {
-        int to = search(t, i -> b ? (i <= 0) : (i < 0));
-        return subSet(leftBound, to + 1);
+        return new ArraySet<>(array, leftBound, search(t, b), comparatorNative);
     }
 
     @Override
     public ArraySet<T> tailSet(T t, boolean b) {
-        int from = search(t, i -> b ? (i >= 0) : (i > 0));
-        return subSet(from, rightBound);
+        return new ArraySet<>(array, search(t, !b), rightBound, comparatorNative);
+    }
+
+    /**
+     * Comparison in the order of this view.
+     */
+    private int compare(T t, T t1) {
+        return array.reversed ? array.comparator.compare(t1, t) : array.comparator.compare(t, t1);
     }
 
     @Override
     public Comparator<? super T> comparator() {
+        if (array.reversed) {
+            return comparatorNative ? Collections.reverseOrder() : Collections.reverseOrder(array.comparator);
+        }
         if (!comparatorNative) return array.comparator;
         else return null;
     }
@@ -224,10 +374,78 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         return array.get(rightBound - 1);
     }
 
-    private String dumpS() {
-        String ret = "";
-        ret += "Arrayset dump: size " + size() + ", content:\n";
-        for (T t : this) ret += t.toString() + "\n";
-        return ret;
+    /**
+     * Set of elements of both sets, in one merge of their arrays; of equal elements, ones of this set are kept.
+     * If the other set is ordered differently, as told by {@link #comparator()}, its elements are sorted in the
+     * order of this set first.
+     */
+    public ArraySet<T> union(ArraySet<T> other) {
+        return merge(other, SetAlgebra.UNION, null);
+    }
+
+    /**
+     * Set of elements of this set which are in the other one. Same as {@link #union(ArraySet)}, and takes
+     * {@code O(m log(n / m))} comparisons for sets of very different sizes {@code m < n}.
+     */
+    public ArraySet<T> intersection(ArraySet<T> other) {
+        return merge(other, SetAlgebra.INTERSECTION, null);
+    }
+
+    /**
+     * Set of elements of this set which are not in the other one. Same as {@link #intersection(ArraySet)}.
+     */
+    public ArraySet<T> difference(ArraySet<T> other) {
+        return merge(other, SetAlgebra.DIFFERENCE, null);
+    }
+
+    /**
+     * Set of elements which are in exactly one of the sets. Same as {@link #union(ArraySet)}.
+     */
+    public ArraySet<T> symmetricDifference(ArraySet<T> other) {
+        return merge(other, SetAlgebra.SYMMETRIC_DIFFERENCE, null);
+    }
+
+    /**
+     * Same as {@link #union(ArraySet)}, with parts of huge sets merged in parallel in the common pool.
+     */
+    public ArraySet<T> parallelUnion(ArraySet<T> other) {
+        return merge(other, SetAlgebra.UNION, ForkJoinPool.commonPool());
     }
+
+    /**
+     * Same as {@link #intersection(ArraySet)}, with parts of huge sets merged in parallel in the common pool.
+     */
+    public ArraySet<T> parallelIntersection(ArraySet<T> other) {
+        return merge(other, SetAlgebra.INTERSECTION, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Same as {@link #difference(ArraySet)}, with parts of huge sets merged in parallel in the common pool.
+     */
+    public ArraySet<T> parallelDifference(ArraySet<T> other) {
+        return merge(other, SetAlgebra.DIFFERENCE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Same as {@link #symmetricDifference(ArraySet)}, with parts of huge sets merged in parallel in the common pool.
+     */
+    public ArraySet<T> parallelSymmetricDifference(ArraySet<T> other) {
+        return merge(other, SetAlgebra.SYMMETRIC_DIFFERENCE, ForkJoinPool.commonPool());
+    }
+
+    private ArraySet<T> merge(ArraySet<T> other, int op, ForkJoinPool pool) {
+        // iteration order of this set; the result is stored in it and is not reversed
+        Comparator<T> order = !array.reversed ? array.comparator
+                : comparatorNative ? Collections.reverseOrder() : Collections.reverseOrder(array.comparator);
+        if (!Objects.equals(comparator(), other.comparator())) {
+            other = new ArraySet<>(other, order);
+        }
+        ArrayWrapper<T> merged = pool == null
+                ? SetAlgebra.merge(array, leftBound, rightBound, other.array, other.leftBound, other.rightBound,
+                order, op)
+                : SetAlgebra.parallelMerge(array, leftBound, rightBound, other.array, other.leftBound,
+                other.rightBound, order, op, pool);
+        return new ArraySet<>(merged, 0, merged.size(), comparatorNative && !array.reversed);
+    }
+
 }
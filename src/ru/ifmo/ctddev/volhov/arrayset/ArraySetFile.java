@@ -0,0 +1,156 @@
+package ru.ifmo.ctddev.volhov.arrayset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Sets of fixed-width keys stored in files and memory-mapped on opening, so that a set of any size opens
+ * instantly, takes no heap, and its pages are shared between processes through the page cache.
+ * <p>
+ * The file is a header of {@value #HEADER} bytes (magic {@code ASET}, version, key width, number of keys and the
+ * name of the {@link KeyCodec}), followed by the keys in the order of {@link KeyCodec#comparator()}, without
+ * duplicates.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public final class ArraySetFile {
+    static final int MAGIC = 0x41534554;
+    static final int VERSION = 1;
+    static final int HEADER = 64;
+    /**
+     * Keys are mapped by segments of at most this many bytes, since a buffer can't be longer than 2 GB.
+     */
+    private static final int SEGMENT = 1 << 30;
+
+    private ArraySetFile() {
+    }
+
+    /**
+     * Writes the set, which must be iterated in the order of the codec, and replaces the file atomically.
+     *
+     * @throws IllegalArgumentException if elements are not strictly increasing by the comparator of the codec
+     * @throws IOException              if file can't be written
+     */
+    public static <T> void write(Collection<T> set, Path file, KeyCodec<T> codec) throws IOException {
+        byte[] name = codec.name().getBytes(StandardCharsets.UTF_8);
+        if (name.length > HEADER - 26) throw new IllegalArgumentException("Codec name is too long");
+        Comparator<T> comparator = codec.comparator();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Math.max(1 << 16, HEADER + codec.width()));
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(codec.width()).putInt(0).putLong(set.size())
+                    .putShort((short) name.length).put(name);
+            buffer.position(HEADER);
+            T previous = null;
+            long count = 0;
+            for (T key : set) {
+                if (count > 0 && comparator.compare(previous, key) >= 0) {
+                    throw new IllegalArgumentException("Keys are not increasing at index " + count);
+                }
+                if (buffer.remaining() < codec.width()) {
+                    flush(channel, buffer);
+                }
+                codec.write(buffer, key);
+                previous = key;
+                count++;
+            }
+            if (count != set.size()) throw new IllegalArgumentException("Set was modified while written");
+            flush(channel, buffer);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Maps the set written by {@link #write(Collection, Path, KeyCodec)} with the same codec. The set is read-only
+     * and ordered by the comparator of the codec; the file is unmapped when the set and all its views are
+     * collected.
+     *
+     * @throws IOException if file can't be read, is not a set file or was written with another codec
+     */
+    public static <T> ArraySet<T> open(Path file, KeyCodec<T> codec) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) break;
+            }
+            header.flip();
+            if (header.remaining() < HEADER || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(file + " is not a set file");
+            }
+            int width = header.getInt();
+            header.getInt();
+            long count = header.getLong();
+            int length = header.getShort();
+            if (length < 0 || length > header.remaining()) {
+                throw new IOException(file + " is not a set file");
+            }
+            byte[] name = new byte[length];
+            header.get(name);
+            if (width != codec.width() || !codec.name().equals(new String(name, StandardCharsets.UTF_8))) {
+                throw new IOException(file + " holds " + new String(name, StandardCharsets.UTF_8) + " keys of "
+                        + width + " bytes, not " + codec.name() + " keys of " + codec.width());
+            }
+            if (count < 0 || count > Integer.MAX_VALUE || channel.size() < HEADER + count * width) {
+                throw new IOException(file + " is truncated or corrupted");
+            }
+            int segmentKeys = Math.max(1, SEGMENT / width);
+            ByteBuffer[] segments = new ByteBuffer[(int) ((count + segmentKeys - 1) / segmentKeys)];
+            for (int i = 0; i < segments.length; i++) {
+                long first = (long) i * segmentKeys;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + first * width,
+                        Math.min(segmentKeys, count - first) * width);
+            }
+            return ArraySet.of(new MappedArrayWrapper<>((int) count, codec, segments, segmentKeys, false, null),
+                    false);
+        }
+    }
+
+    /**
+     * Keys of a mapped file, decoded on every access.
+     */
+    private static final class MappedArrayWrapper<T> extends ArrayWrapper<T> {
+        private final KeyCodec<T> codec;
+        private final ByteBuffer[] segments;
+        private final int segmentKeys;
+
+        MappedArrayWrapper(int length, KeyCodec<T> codec, ByteBuffer[] segments, int segmentKeys, boolean reversed,
+                           SearchIndex<T> index) {
+            super(length, codec.comparator(), reversed, index);
+            this.codec = codec;
+            this.segments = segments;
+            this.segmentKeys = segmentKeys;
+        }
+
+        @Override
+        protected T element(int index) {
+            return codec.read(segments[index / segmentKeys], index % segmentKeys * codec.width());
+        }
+
+        @Override
+        protected ArrayWrapper<T> derive(boolean reversed, SearchIndex<T> index) {
+            return new MappedArrayWrapper<>(size(), codec, segments, segmentKeys, reversed, index);
+        }
+    }
+}
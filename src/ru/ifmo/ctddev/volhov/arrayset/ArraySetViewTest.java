@@ -0,0 +1,62 @@
+package ru.ifmo.ctddev.volhov.arrayset;
+
+import java.util.*;
+
+import static ru.ifmo.ctddev.volhov.arrayset.SetChecks.*;
+
+/**
+ * Compares chains of views of {@link ArraySet} with the same chains of views of {@link TreeSet}: in natural and
+ * reverse order, with a search index and descending twice, so that bounds of descending views and comparators
+ * of reversed ones are checked at every level.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class ArraySetViewTest {
+    public static void main(String[] args) {
+        Random random = new Random(21);
+        for (int test = 0; test < 2000; test++) {
+            int size = random.nextInt(40), range = 2 * size + 3;
+            Integer[] values = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = random.nextInt(range);
+            }
+            List<Integer> list = Arrays.asList(values);
+            NavigableSet<Integer> actual, expected;
+            switch (test % 4) {
+                case 0:
+                    actual = new ArraySet<>(list);
+                    expected = new TreeSet<>(list);
+                    break;
+                case 1:
+                    actual = ArraySet.fromArray(values.clone()).indexed(v -> v / 3);
+                    expected = new TreeSet<>(list);
+                    break;
+                case 2:
+                    actual = new ArraySet<>(list, Comparator.<Integer>reverseOrder());
+                    expected = new TreeSet<>(Comparator.<Integer>reverseOrder());
+                    expected.addAll(list);
+                    break;
+                default:
+                    actual = ArraySet.fromArray(values.clone(), Integer::compare).descendingSet().descendingSet();
+                    expected = new TreeSet<>(Integer::compare);
+                    expected.addAll(list);
+                    break;
+            }
+            sameViews(actual, expected, range(-1, range), random, 6);
+        }
+
+        ArraySet<Integer> set = new ArraySet<>(Arrays.asList(1, 2, 7, 8, 3, 18, 43));
+        equal(new ArrayList<>(set.descendingSet().headSet(3)), Arrays.asList(43, 18, 8, 7), "descending headSet");
+        equal(new ArrayList<>(set.descendingSet().tailSet(3)), Arrays.asList(3, 2, 1), "descending tailSet");
+        equal(new ArrayList<>(set.descendingSet().subSet(8, 2)), Arrays.asList(8, 7, 3), "descending subSet");
+        equal(outcome(() -> set.descendingSet().subSet(2, 8)), IllegalArgumentException.class,
+                "descending subSet of increasing bounds");
+        equal(set.descendingSet().comparator().compare(1, 2) > 0, true, "comparator of a descending set");
+        ArraySet<Integer> reversed = new ArraySet<>(Arrays.asList(1, 2, 3), Comparator.<Integer>reverseOrder());
+        equal(reversed.comparator().compare(1, 2) > 0, true, "comparator of a reversed set");
+        equal(reversed.descendingSet().comparator().compare(1, 2) < 0, true,
+                "comparator of a descending reversed set");
+        System.out.println("OK");
+    }
+}
@@ -2,6 +2,8 @@ package ru.ifmo.ctddev.volhov.arrayset;
 
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
 /**
  * @author volhovm
@@ -9,9 +11,37 @@ import java.util.Comparator;
  */
 
 public class ArrayWrapper<T> {
+    /**
+     * Arrays of this length or longer are sorted with {@link Arrays#parallelSort}.
+     */
+    public static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+    /**
+     * Number of keys of the search index per key of its upper level.
+     */
+    private static final int BLOCK = 64;
+
+    /**
+     * Optional search index: order-preserving {@code long} prefixes of the elements, and every
+     * {@link #BLOCK}-th of them as the upper level. Lookups compare primitives in two small arrays instead of
+     * dereferencing an element at every step, which is where a binary search over a huge {@code Object[]} misses
+     * the cache; the element is compared only when prefixes are equal.
+     */
+    protected static final class SearchIndex<T> {
+        private final ToLongFunction<? super T> prefix;
+        private final long[] keys, fences;
+
+        private SearchIndex(ToLongFunction<? super T> prefix, long[] keys, long[] fences) {
+            this.prefix = prefix;
+            this.keys = keys;
+            this.fences = fences;
+        }
+    }
+
     private final T[] array;
+    private final int length;
     public final Comparator<T> comparator;
     public final boolean reversed;
+    private final SearchIndex<T> index;
 
     public <E extends Comparable<? super T>> ArrayWrapper(T[] array) {
         this((T[]) array, new Comparator<T>() {
@@ -23,35 +53,250 @@ public class ArrayWrapper<T> {
     }
 
     public ArrayWrapper(T[] array, Comparator<T> comparator) {
-        this(array, comparator, false);
+        this(array, array.length, comparator);
+    }
+
+    /**
+     * Wraps the first {@code length} elements of the array, the rest of it is ignored.
+     */
+    public ArrayWrapper(T[] array, int length, Comparator<T> comparator) {
+        this(array, length, comparator, false, null);
     }
 
-    private ArrayWrapper(T[] array, Comparator<T> comparator, boolean reversed) {
+    private ArrayWrapper(T[] array, int length, Comparator<T> comparator, boolean reversed, SearchIndex<T> index) {
+        if (length < 0 || length > array.length) throw new IllegalArgumentException("Length is out of array");
         this.array = array;
+        this.length = length;
         this.comparator = comparator;
         this.reversed = reversed;
+        this.index = index;
+    }
+
+    /**
+     * Constructor for wrappers keeping elements elsewhere than in an array, which override
+     * {@link #element(int)} and {@link #derive(boolean, SearchIndex)}.
+     */
+    protected ArrayWrapper(int length, Comparator<T> comparator, boolean reversed, SearchIndex<T> index) {
+        if (length < 0) throw new IllegalArgumentException("Length is negative");
+        this.array = null;
+        this.length = length;
+        this.comparator = comparator;
+        this.reversed = reversed;
+        this.index = index;
+    }
+
+    /**
+     * Element by its index in the sorted order, regardless of {@link #reversed}.
+     */
+    protected T element(int index) {
+        return array[index];
+    }
+
+    /**
+     * Wrapper of the same elements with the given direction and search index.
+     */
+    protected ArrayWrapper<T> derive(boolean reversed, SearchIndex<T> index) {
+        return new ArrayWrapper<T>(array, length, comparator, reversed, index);
     }
 
     public T get(int index) {
-        return array[revIndex(index)];
+        return element(revIndex(index));
+    }
+
+    /**
+     * Passes elements of {@code [from, to)} to the action in the order of the wrapper, in a loop over the array.
+     */
+    public void forEach(int from, int to, Consumer<? super T> action) {
+        int l = reversed ? length - to : from, r = reversed ? length - from : to;
+        T[] array = this.array;
+        if (array == null) {
+            for (int i = 0; i < r - l; i++) {
+                action.accept(element(reversed ? r - 1 - i : l + i));
+            }
+        } else if (reversed) {
+            for (int i = r - 1; i >= l; i--) {
+                action.accept(array[i]);
+            }
+        } else {
+            for (int i = l; i < r; i++) {
+                action.accept(array[i]);
+            }
+        }
     }
 
     public ArrayWrapper<T> reversedArray() {
-        return new ArrayWrapper<T>(array, comparator, !reversed);
+        return derive(!reversed, index);
+    }
+
+    /**
+     * Wrapper of the same array with the search index built, taking {@code length} longs more.
+     * The prefix must preserve the order: {@code prefix(a) <= prefix(b)} if {@code a <= b} by the comparator,
+     * e.g. the value of an integer, or the first chars of a string; the fewer elements share a prefix, the faster
+     * lookups are.
+     */
+    public ArrayWrapper<T> indexed(ToLongFunction<? super T> prefix) {
+        long[] keys = new long[length];
+        for (int i = 0; i < length; i++) {
+            keys[i] = prefix.applyAsLong(element(i));
+            if (i > 0 && keys[i] < keys[i - 1]) {
+                throw new IllegalArgumentException("Prefix does not preserve the order at index " + i);
+            }
+        }
+        long[] fences = new long[(length + BLOCK - 1) / BLOCK];
+        for (int b = 0; b < fences.length; b++) {
+            fences[b] = keys[b * BLOCK];
+        }
+        return derive(reversed, new SearchIndex<T>(prefix, keys, fences));
+    }
+
+    public boolean isIndexed() {
+        return index != null;
     }
 
-    public int binarySearch(int leftBound, int rightBound, T t) {
-        int i = Arrays.binarySearch(array, leftBound, rightBound, t, comparator);
-        if (i < 0) i = reversed ? i - (2 * i) - 2 : i - (2 * i) - 1;
-        return revIndex(i);
+    /**
+     * Same as {@link Arrays#binarySearch(Object[], int, int, Object, Comparator)}, through the index if it is built:
+     * the whole array is searched and the result is clamped to the range.
+     */
+    private int search(int fromIndex, int toIndex, T t) {
+        if (index == null) {
+            if (array != null) return Arrays.binarySearch(array, fromIndex, toIndex, t, comparator);
+            return elementSearch(fromIndex, toIndex, t);
+        }
+        long[] keys = index.keys;
+        long key = index.prefix.applyAsLong(t);
+        // elements of the block before the first fence not less than the key are less than it
+        int b = lowerBound(index.fences, 0, index.fences.length, key);
+        int i = lowerBound(keys, Math.max(b - 1, 0) * BLOCK, Math.min(b * BLOCK, length), key);
+        boolean found = false;
+        if (i < length && keys[i] == key) {
+            // elements with the same prefix are ordered by the comparator, others can't be equal to t
+            int to = upperBound(keys, i, length, key);
+            while (i < to) {
+                int mid = (i + to) >>> 1;
+                int c = comparator.compare(element(mid), t);
+                if (c < 0) {
+                    i = mid + 1;
+                } else {
+                    found |= c == 0;
+                    to = mid;
+                }
+            }
+        }
+        if (found && i >= fromIndex && i < toIndex) return i;
+        return -Math.min(Math.max(i, fromIndex), toIndex) - 1;
+    }
+
+    /**
+     * Binary search over {@link #element(int)} with the same result as {@link Arrays#binarySearch}.
+     */
+    private int elementSearch(int from, int to, T t) {
+        to--;
+        while (from <= to) {
+            int mid = (from + to) >>> 1;
+            int c = comparator.compare(element(mid), t);
+            if (c < 0) {
+                from = mid + 1;
+            } else if (c > 0) {
+                to = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(from + 1);
+    }
+
+    private static int lowerBound(long[] a, int from, int to, long key) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (a[mid] < key) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * First index of {@code [from, to)} with a key greater than the given one, found by galloping from
+     * {@code from}, since runs of equal prefixes are short.
+     */
+    private static int upperBound(long[] a, int from, int to, long key) {
+        int hi = from, step = 1;
+        while (hi < to && a[hi] <= key) {
+            from = hi + 1;
+            hi = to - hi > step ? hi + step : to;
+            step <<= 1;
+        }
+        while (from < hi) {
+            int mid = (from + hi) >>> 1;
+            if (a[mid] <= key) {
+                from = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * First index of {@code [from, to)} whose element is not before {@code t} in the order of this wrapper
+     * (after it if {@code strict}), {@code to} if there is none. Indices are in the order of the wrapper, as in
+     * {@link #get(int)}; the search is binary in the corresponding range of the array.
+     */
+    public int lowerBound(int from, int to, T t, boolean strict) {
+        int i = reversed ? search(length - to, length - from, t) : search(from, to, t);
+        int ceiling = i >= 0 ? i : -i - 1;
+        int higher = i >= 0 ? i + 1 : ceiling;
+        // elements before t in a reversed wrapper are greater than it
+        if (reversed) return length - (strict ? ceiling : higher);
+        return strict ? higher : ceiling;
     }
 
     public int size() {
-        return array.length;
+        return length;
+    }
+
+    private static <T> void sort(T[] array, int length, Comparator<? super T> comparator) {
+        if (length >= PARALLEL_SORT_THRESHOLD) {
+            Arrays.parallelSort(array, 0, length, comparator);
+        } else {
+            Arrays.sort(array, 0, length, comparator);
+        }
+    }
+
+    /**
+     * Sorts the array in place and moves the first of every run of equal elements to its head.
+     * Both sorts are stable, so the first occurrence of each element is kept.
+     *
+     * @return number of distinct elements, the rest of the array is cleared
+     */
+    public static <T> int sortUnique(T[] array, Comparator<? super T> comparator) {
+        sort(array, array.length, comparator);
+        return unique(array, comparator, false);
     }
 
-    public void sort() {
-        Arrays.sort(array, comparator);
+    /**
+     * Moves the first of every run of equal elements of the sorted array to its head in one pass.
+     *
+     * @param checkOrder if true, the order of the array is checked as well
+     *
+     * @return number of distinct elements, the rest of the array is cleared
+     * @throws IllegalArgumentException if the order is checked and the array is not sorted
+     */
+    public static <T> int unique(T[] array, Comparator<? super T> comparator, boolean checkOrder) {
+        int length = array.length == 0 ? 0 : 1;
+        for (int i = 1; i < array.length; i++) {
+            int c = comparator.compare(array[length - 1], array[i]);
+            if (c > 0 && checkOrder) {
+                throw new IllegalArgumentException("Array is not sorted at index " + i);
+            }
+            if (c != 0) {
+                array[length++] = array[i];
+            }
+        }
+        Arrays.fill(array, length, array.length, null);
+        return length;
     }
 
     public int revIndex(int index) {
@@ -0,0 +1,484 @@
+package ru.ifmo.ctddev.volhov.arrayset;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Immutable sorted set of strings, stored front-coded in UTF-8 in one {@code byte[]}.
+ * <p>
+ * Strings are grouped in blocks of {@value #BLOCK}: the first string of a block is stored whole, every next one as
+ * the length of the prefix it shares with the previous string and the rest of its bytes. A lookup binary searches
+ * the first strings of blocks, comparing them in place, and decodes one block. Paths and URLs, which share long
+ * prefixes, take a few bytes each, against about {@code 60} bytes of headers and references per string plus its
+ * characters in {@code ArraySet<String>}.
+ * <p>
+ * Strings are ordered by their UTF-8 bytes, which is the order of code points, {@link #UTF8_ORDER}; it differs
+ * from {@link String#compareTo} only for supplementary characters. Strings with unpaired surrogates have no UTF-8
+ * form and are rejected with {@link IllegalArgumentException}, both as elements and as arguments.
+ * <p>
+ * Views share the bytes with the set they were taken from, like the views of {@link IntArraySet}.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class FrontCodedStringSet extends AbstractSet<String> implements NavigableSet<String> {
+    /**
+     * Order of strings by code points, which is the order of their UTF-8 bytes.
+     */
+    public static final Comparator<String> UTF8_ORDER = (a, b) -> {
+        int i = 0, j = 0;
+        while (i < a.length() && j < b.length()) {
+            int x = a.codePointAt(i), y = b.codePointAt(j);
+            if (x != y) return Integer.compare(x, y);
+            i += Character.charCount(x);
+            j += Character.charCount(y);
+        }
+        return Boolean.compare(i < a.length(), j < b.length());
+    };
+
+    private static final int BLOCK = 16;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final byte[] data;
+    private final int[] blocks; // offsets of the first strings of blocks
+    private final int count;
+    private final int leftBound, rightBound; // [..)
+    private final boolean reversed;
+
+    public FrontCodedStringSet() {
+        this(EMPTY, new int[0], 0, 0, 0, false);
+    }
+
+    /**
+     * Creates a set of the strings of the collection, duplicates are dropped.
+     *
+     * @param collection strings of the set in any order, must not contain {@code null}
+     * @throws IllegalArgumentException if a string has an unpaired surrogate, or strings take more than 2 GB
+     */
+    public FrontCodedStringSet(Collection<String> collection) {
+        byte[][] strings = new byte[collection.size()][];
+        int n = 0;
+        for (String s : collection) {
+            strings[n++] = utf8(s);
+        }
+        if (n >= ArrayWrapper.PARALLEL_SORT_THRESHOLD) {
+            Arrays.parallelSort(strings, 0, n, FrontCodedStringSet::compare);
+        } else {
+            Arrays.sort(strings, 0, n, FrontCodedStringSet::compare);
+        }
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            if (length == 0 || compare(strings[length - 1], strings[i]) != 0) {
+                strings[length++] = strings[i];
+            }
+        }
+
+        long bytes = 0;
+        for (int i = 0; i < length; i++) {
+            byte[] s = strings[i];
+            int shared = i % BLOCK == 0 ? 0 : sharedPrefix(strings[i - 1], s);
+            bytes += (i % BLOCK == 0 ? 0 : varIntLength(shared)) + varIntLength(s.length - shared) + s.length - shared;
+        }
+        if (bytes > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Strings take more than 2 GB");
+
+        byte[] data = new byte[(int) bytes];
+        int[] blocks = new int[(length + BLOCK - 1) / BLOCK];
+        int position = 0;
+        for (int i = 0; i < length; i++) {
+            byte[] s = strings[i];
+            int shared = 0;
+            if (i % BLOCK == 0) {
+                blocks[i / BLOCK] = position;
+            } else {
+                shared = sharedPrefix(strings[i - 1], s);
+                position = putVarInt(data, position, shared);
+            }
+            position = putVarInt(data, position, s.length - shared);
+            System.arraycopy(s, shared, data, position, s.length - shared);
+            position += s.length - shared;
+        }
+        this.data = data;
+        this.blocks = blocks;
+        this.count = length;
+        this.leftBound = 0;
+        this.rightBound = length;
+        this.reversed = false;
+    }
+
+    private FrontCodedStringSet(byte[] data, int[] blocks, int count, int leftBound, int rightBound,
+                                boolean reversed) {
+        this.data = data;
+        this.blocks = blocks;
+        this.count = count;
+        this.leftBound = leftBound;
+        this.rightBound = leftBound >= rightBound ? leftBound : rightBound;
+        this.reversed = reversed;
+    }
+
+    private static byte[] utf8(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                throw new IllegalArgumentException("Unpaired surrogate at index " + i + " of " + s);
+            }
+        }
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int compare(byte[] a, byte[] b) {
+        return compare(a, 0, a.length, b);
+    }
+
+    /**
+     * Compares {@code length} bytes of {@code a} from {@code offset} with {@code b} as unsigned bytes.
+     */
+    private static int compare(byte[] a, int offset, int length, byte[] b) {
+        for (int i = 0; i < length && i < b.length; i++) {
+            int c = (a[offset + i] & 0xff) - (b[i] & 0xff);
+            if (c != 0) return c;
+        }
+        return Integer.compare(length, b.length);
+    }
+
+    private static int sharedPrefix(byte[] a, byte[] b) {
+        int i = 0;
+        while (i < a.length && i < b.length && a[i] == b[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int varIntLength(int value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private static int putVarInt(byte[] data, int position, int value) {
+        while ((value & ~0x7f) != 0) {
+            data[position++] = (byte) (value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        data[position++] = (byte) value;
+        return position;
+    }
+
+    private int varIntAt(int position) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = data[position++];
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    /**
+     * Length of the common prefix of {@code length} bytes of data from {@code offset} and the key from {@code from}.
+     */
+    private int commonPrefix(int offset, int length, byte[] key, int from) {
+        int i = 0;
+        while (i < length && from + i < key.length && data[offset + i] == key[from + i]) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Decoder of the strings of a block one by one into its buffer, which grows to the longest of them.
+     */
+    private final class Cursor {
+        private byte[] buffer;
+        private int position, length;
+
+        Cursor(int block) {
+            position = blocks[block];
+            length = varIntAt(position);
+            position += varIntLength(length);
+            buffer = Arrays.copyOfRange(data, position, position + length);
+            position += length;
+        }
+
+        /**
+         * Moves to the next string, which must be in the same block.
+         */
+        void next() {
+            length = varIntAt(position);
+            position += varIntLength(length);
+            int suffix = varIntAt(position);
+            position += varIntLength(suffix);
+            if (buffer.length < length + suffix) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + suffix));
+            }
+            System.arraycopy(data, position, buffer, length, suffix);
+            position += suffix;
+            length += suffix;
+        }
+
+        String string() {
+            return new String(buffer, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Compares the first string of the block with the key without decoding it.
+     */
+    private int compareHead(int block, byte[] key) {
+        int position = blocks[block];
+        int length = varIntAt(position);
+        return compare(data, position + varIntLength(length), length, key);
+    }
+
+    /**
+     * Same as {@link Arrays#binarySearch(Object[], Object)} over all strings, regardless of the bounds.
+     */
+    private int search(String s) {
+        byte[] key = utf8(s);
+        // the key is in the last block whose first string is not greater than it, if anywhere
+        int lo = 0, hi = blocks.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compareHead(mid, key);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return mid * BLOCK;
+            }
+        }
+        if (hi < 0) return -1;
+        // Strings of the block are compared with the key in place, by the length of their common prefix with it:
+        // a string sharing less with the previous one than the previous one shares with the key is greater than
+        // the key, a string sharing more is less than it, and only otherwise its suffix is compared.
+        int position = blocks[hi];
+        int length = varIntAt(position);
+        position += varIntLength(length);
+        int matched = commonPrefix(position, length, key, 0);
+        position += length;
+        int first = hi * BLOCK, last = Math.min(first + BLOCK, count);
+        for (int i = first + 1; i < last; i++) {
+            int shared = varIntAt(position);
+            position += varIntLength(shared);
+            int suffix = varIntAt(position);
+            position += varIntLength(suffix);
+            if (shared < matched) return -i - 1;
+            if (shared == matched) {
+                int common = commonPrefix(position, suffix, key, matched);
+                matched += common;
+                if (common < suffix && (matched == key.length
+                        || (data[position + common] & 0xff) > (key[matched] & 0xff))) {
+                    return -i - 1;
+                }
+                if (common == suffix && matched == key.length) return i;
+            }
+            position += suffix;
+        }
+        return -last - 1;
+    }
+
+    private String get(int index) {
+        Cursor cursor = new Cursor(index / BLOCK);
+        for (int i = index % BLOCK; i > 0; i--) {
+            cursor.next();
+        }
+        return cursor.string();
+    }
+
+    /**
+     * Decodes all strings of the block into the array.
+     */
+    private void decodeBlock(int block, String[] strings) {
+        Cursor cursor = new Cursor(block);
+        strings[0] = cursor.string();
+        for (int i = 1, n = Math.min(BLOCK, count - block * BLOCK); i < n; i++) {
+            cursor.next();
+            strings[i] = cursor.string();
+        }
+    }
+
+    // Indices below are ranks of strings in the whole set, limited to the bounds of the view.
+
+    private int ceilingIndex(String s) {
+        int i = search(s);
+        return Math.max(leftBound, Math.min(i >= 0 ? i : -i - 1, rightBound));
+    }
+
+    private int higherIndex(String s) {
+        int i = search(s);
+        return Math.max(leftBound, Math.min(i >= 0 ? i + 1 : -i - 1, rightBound));
+    }
+
+    private int floorIndex(String s) {
+        int i = search(s);
+        return Math.min(rightBound - 1, Math.max(i >= 0 ? i : -i - 2, leftBound - 1));
+    }
+
+    private int lowerIndex(String s) {
+        int i = search(s);
+        return Math.min(rightBound - 1, Math.max(i >= 0 ? i - 1 : -i - 2, leftBound - 1));
+    }
+
+    private boolean inBounds(int index) {
+        return index >= leftBound && index < rightBound;
+    }
+
+    private String valueAt(int index) {
+        return inBounds(index) ? get(index) : null;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o == null) throw new NullPointerException();
+        return inBounds(search((String) o));
+    }
+
+    @Override
+    public String lower(String s) {
+        return valueAt(reversed ? higherIndex(s) : lowerIndex(s));
+    }
+
+    @Override
+    public String floor(String s) {
+        return valueAt(reversed ? ceilingIndex(s) : floorIndex(s));
+    }
+
+    @Override
+    public String ceiling(String s) {
+        return valueAt(reversed ? floorIndex(s) : ceilingIndex(s));
+    }
+
+    @Override
+    public String higher(String s) {
+        return valueAt(reversed ? lowerIndex(s) : higherIndex(s));
+    }
+
+    @Override
+    public String first() {
+        if (isEmpty()) throw new NoSuchElementException();
+        return get(reversed ? rightBound - 1 : leftBound);
+    }
+
+    @Override
+    public String last() {
+        if (isEmpty()) throw new NoSuchElementException();
+        return get(reversed ? leftBound : rightBound - 1);
+    }
+
+    @Override
+    public String pollFirst() {
+        throw new UnsupportedOperationException("FrontCodedStringSet is immutable");
+    }
+
+    @Override
+    public String pollLast() {
+        throw new UnsupportedOperationException("FrontCodedStringSet is immutable");
+    }
+
+    @Override
+    public int size() {
+        return rightBound - leftBound;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Iterator decoding a block at a time, in either direction.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private final String[] block = new String[BLOCK];
+            private int decoded = -1;
+            private int pointer = reversed ? rightBound - 1 : leftBound;
+
+            @Override
+            public boolean hasNext() {
+                return reversed ? pointer >= leftBound : pointer < rightBound;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                int i = reversed ? pointer-- : pointer++;
+                if (i / BLOCK != decoded) {
+                    decoded = i / BLOCK;
+                    decodeBlock(decoded, block);
+                }
+                return block[i % BLOCK];
+            }
+        };
+    }
+
+    @Override
+    public FrontCodedStringSet descendingSet() {
+        return new FrontCodedStringSet(data, blocks, count, leftBound, rightBound, !reversed);
+    }
+
+    @Override
+    public Iterator<String> descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    private FrontCodedStringSet view(int from, int to) {
+        return new FrontCodedStringSet(data, blocks, count, from, to, reversed);
+    }
+
+    @Override
+    public FrontCodedStringSet subSet(String from, boolean fromInclusive, String to, boolean toInclusive) {
+        if (comparator().compare(from, to) > 0) {
+            throw new IllegalArgumentException("First element must be less than the second one");
+        }
+        if (reversed) {
+            return view(toInclusive ? ceilingIndex(to) : higherIndex(to),
+                    (fromInclusive ? floorIndex(from) : lowerIndex(from)) + 1);
+        }
+        return view(fromInclusive ? ceilingIndex(from) : higherIndex(from),
+                (toInclusive ? floorIndex(to) : lowerIndex(to)) + 1);
+    }
+
+    @Override
+    public FrontCodedStringSet headSet(String to, boolean inclusive) {
+        if (reversed) {
+            return view(inclusive ? ceilingIndex(to) : higherIndex(to), rightBound);
+        }
+        return view(leftBound, (inclusive ? floorIndex(to) : lowerIndex(to)) + 1);
+    }
+
+    @Override
+    public FrontCodedStringSet tailSet(String from, boolean inclusive) {
+        if (reversed) {
+            return view(leftBound, (inclusive ? floorIndex(from) : lowerIndex(from)) + 1);
+        }
+        return view(inclusive ? ceilingIndex(from) : higherIndex(from), rightBound);
+    }
+
+    @Override
+    public FrontCodedStringSet subSet(String from, String to) {
+        return subSet(from, true, to, false);
+    }
+
+    @Override
+    public FrontCodedStringSet headSet(String to) {
+        return headSet(to, false);
+    }
+
+    @Override
+    public FrontCodedStringSet tailSet(String from) {
+        return tailSet(from, true);
+    }
+
+    /**
+     * @return {@link #UTF8_ORDER}, reversed for descending views
+     */
+    @Override
+    public Comparator<? super String> comparator() {
+        return reversed ? UTF8_ORDER.reversed() : UTF8_ORDER;
+    }
+}
@@ -0,0 +1,60 @@
+package ru.ifmo.ctddev.volhov.arrayset;
+
+import java.util.*;
+
+import static ru.ifmo.ctddev.volhov.arrayset.SetChecks.*;
+
+/**
+ * Compares {@link FrontCodedStringSet} and chains of its views with a {@link TreeSet} ordered by
+ * {@link FrontCodedStringSet#UTF8_ORDER}. Strings are short and drawn from a small alphabet, so that they share
+ * prefixes; it includes two-byte characters, characters of the private use area and supplementary ones, whose
+ * order in UTF-8 differs from their order in UTF-16.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class FrontCodedStringSetTest {
+    public static void main(String[] args) {
+        Random random = new Random(23);
+        for (int test = 0; test < 1000; test++) {
+            List<String> strings = new ArrayList<>();
+            for (int i = random.nextInt(80); i > 0; i--) {
+                strings.add(randomString(random));
+            }
+            TreeSet<String> expected = new TreeSet<>(FrontCodedStringSet.UTF8_ORDER);
+            expected.addAll(strings);
+            List<String> probes = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                probes.add(randomString(random));
+            }
+            probes.addAll(strings.subList(0, Math.min(10, strings.size())));
+            sameViews(new FrontCodedStringSet(strings), expected, probes, random, 4);
+        }
+
+        String privateUse = "\uE000", supplementary = "\uD83D\uDE00";
+        equal(FrontCodedStringSet.UTF8_ORDER.compare(privateUse, supplementary) < 0, true, "order of UTF-8");
+        equal(new ArrayList<>(new FrontCodedStringSet(Arrays.asList(supplementary, privateUse, "a"))),
+                Arrays.asList("a", privateUse, supplementary), "elements in order of UTF-8");
+        equal(outcome(() -> new FrontCodedStringSet(Collections.singletonList("a\uD800"))),
+                IllegalArgumentException.class, "unpaired surrogate");
+        equal(new FrontCodedStringSet().isEmpty(), true, "empty set");
+        System.out.println("OK");
+    }
+
+    private static String randomString(Random random) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = random.nextInt(6); i > 0; i--) {
+            int kind = random.nextInt(10);
+            if (kind == 0) {
+                builder.appendCodePoint(0x1F600 + random.nextInt(3));
+            } else if (kind == 1) {
+                builder.append((char) (0xE000 + random.nextInt(3)));
+            } else if (kind == 2) {
+                builder.append('\u00E9');
+            } else {
+                builder.append((char) ('a' + random.nextInt(3)));
+            }
+        }
+        return builder.toString();
+    }
+}
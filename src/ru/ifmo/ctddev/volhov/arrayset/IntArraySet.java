@@ -0,0 +1,191 @@
+package ru.ifmo.ctddev.volhov.arrayset;
+
+import java.util.*;
+
+/**
+ * Immutable sorted set of {@code int} values, stored unboxed in one {@code int[]} in natural order.
+ * <p>
+ * Views share the array with the set they were taken from, like the views of {@link ArraySet}: a view is a range
+ * {@code [leftBound, rightBound)} of the array and a flag telling if it is traversed in reverse order. Besides
+ * the {@link NavigableSet} methods, which box, there are primitive counterparts: {@link #contains(int)},
+ * {@link #firstInt}, {@link #floorInt} and the rest, and {@link #subSet(int, boolean, int, boolean)}.
+ * Navigation methods return an empty {@link OptionalInt} if there is no such element. Views and navigation are
+ * shared with {@link LongArraySet} through {@link PrimitiveArraySet}.
+ * <p>
+ * The set takes {@code 4} bytes per element, against about 20 for {@code ArraySet<Integer>}.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class IntArraySet extends PrimitiveArraySet<Integer, IntArraySet> {
+    private static final int[] EMPTY = new int[0];
+
+    private final int[] array;
+
+    public IntArraySet() {
+        this(EMPTY, 0, 0, false);
+    }
+
+    /**
+     * Creates a set of the given values, duplicates are dropped. The array is copied.
+     *
+     * @param values values of the set in any order
+     */
+    public IntArraySet(int... values) {
+        this(sortedUnique(values.clone()), false);
+    }
+
+    /**
+     * Creates a set of the values of the collection, duplicates are dropped.
+     *
+     * @param collection values of the set in any order, must not contain {@code null}
+     */
+    public IntArraySet(Collection<Integer> collection) {
+        this(sortedUnique(unbox(collection)), false);
+    }
+
+    private IntArraySet(int[] array, boolean reversed) {
+        this(array, 0, array.length, reversed);
+    }
+
+    private IntArraySet(int[] array, int leftBound, int rightBound, boolean reversed) {
+        super(leftBound, rightBound, reversed);
+        this.array = array;
+    }
+
+    private static int[] unbox(Collection<Integer> collection) {
+        int[] values = new int[collection.size()];
+        int i = 0;
+        for (Integer value : collection) {
+            values[i++] = value;
+        }
+        return i == values.length ? values : Arrays.copyOf(values, i);
+    }
+
+    private static int[] sortedUnique(int[] values) {
+        Arrays.sort(values);
+        int length = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (length == 0 || values[length - 1] != values[i]) {
+                values[length++] = values[i];
+            }
+        }
+        return length == values.length ? values : Arrays.copyOf(values, length);
+    }
+
+    private int search(int value) {
+        return Arrays.binarySearch(array, leftBound, rightBound, value);
+    }
+
+    @Override
+    int search(Integer value) {
+        return search(value.intValue());
+    }
+
+    @Override
+    int compare(Integer value, Integer value1) {
+        return Integer.compare(value, value1);
+    }
+
+    @Override
+    Integer boxed(int index) {
+        return array[index];
+    }
+
+    @Override
+    int hashAt(int index) {
+        return Integer.hashCode(array[index]);
+    }
+
+    @Override
+    IntArraySet view(int from, int to, boolean reversed) {
+        return new IntArraySet(array, from, to, reversed);
+    }
+
+    private OptionalInt valueAt(int index) {
+        return inBounds(index) ? OptionalInt.of(array[index]) : OptionalInt.empty();
+    }
+
+    public boolean contains(int value) {
+        return search(value) >= 0;
+    }
+
+    public OptionalInt lowerInt(int value) {
+        return valueAt(before(search(value), false));
+    }
+
+    public OptionalInt floorInt(int value) {
+        return valueAt(before(search(value), true));
+    }
+
+    public OptionalInt ceilingInt(int value) {
+        return valueAt(after(search(value), true));
+    }
+
+    public OptionalInt higherInt(int value) {
+        return valueAt(after(search(value), false));
+    }
+
+    /**
+     * @return the first element of the view
+     * @throws NoSuchElementException if the set is empty
+     */
+    public int firstInt() {
+        return array[firstIndex()];
+    }
+
+    /**
+     * @return the last element of the view
+     * @throws NoSuchElementException if the set is empty
+     */
+    public int lastInt() {
+        return array[lastIndex()];
+    }
+
+    /**
+     * @return elements of the view in its order
+     */
+    public int[] toIntArray() {
+        if (!reversed) return Arrays.copyOfRange(array, leftBound, rightBound);
+        int[] result = new int[size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = array[index(i)];
+        }
+        return result;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int position = 0;
+
+            @Override
+            public boolean hasNext() {
+                return position < size();
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return array[index(position++)];
+            }
+        };
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    public IntArraySet subSet(int from, boolean fromInclusive, int to, boolean toInclusive) {
+        return subRange(Integer.compare(from, to), search(from), fromInclusive, search(to), toInclusive);
+    }
+
+    public IntArraySet headSet(int to, boolean inclusive) {
+        return headRange(search(to), inclusive);
+    }
+
+    public IntArraySet tailSet(int from, boolean inclusive) {
+        return tailRange(search(from), inclusive);
+    }
+}
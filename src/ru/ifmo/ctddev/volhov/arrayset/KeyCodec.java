@@ -0,0 +1,135 @@
+package ru.ifmo.ctddev.volhov.arrayset;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+
+/**
+ * Fixed-width binary form of set elements, for {@link ArraySetFile}.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public interface KeyCodec<T> {
+    KeyCodec<Integer> INT = new KeyCodec<Integer>() {
+        @Override
+        public String name() {
+            return "int";
+        }
+
+        @Override
+        public int width() {
+            return 4;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, Integer key) {
+            buffer.putInt(key);
+        }
+
+        @Override
+        public Integer read(ByteBuffer buffer, int offset) {
+            return buffer.getInt(offset);
+        }
+
+        @Override
+        public Comparator<Integer> comparator() {
+            return Comparator.naturalOrder();
+        }
+    };
+
+    KeyCodec<Long> LONG = new KeyCodec<Long>() {
+        @Override
+        public String name() {
+            return "long";
+        }
+
+        @Override
+        public int width() {
+            return 8;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, Long key) {
+            buffer.putLong(key);
+        }
+
+        @Override
+        public Long read(ByteBuffer buffer, int offset) {
+            return buffer.getLong(offset);
+        }
+
+        @Override
+        public Comparator<Long> comparator() {
+            return Comparator.naturalOrder();
+        }
+    };
+
+    /**
+     * Byte arrays of the given length, e.g. digests, ordered as unsigned bytes.
+     */
+    static KeyCodec<byte[]> bytes(int width) {
+        if (width <= 0) throw new IllegalArgumentException("Width must be positive");
+        return new KeyCodec<byte[]>() {
+            @Override
+            public String name() {
+                return "bytes";
+            }
+
+            @Override
+            public int width() {
+                return width;
+            }
+
+            @Override
+            public void write(ByteBuffer buffer, byte[] key) {
+                if (key.length != width) throw new IllegalArgumentException("Key is not " + width + " bytes long");
+                buffer.put(key);
+            }
+
+            @Override
+            public byte[] read(ByteBuffer buffer, int offset) {
+                byte[] key = new byte[width];
+                for (int i = 0; i < width; i++) {
+                    key[i] = buffer.get(offset + i);
+                }
+                return key;
+            }
+
+            @Override
+            public Comparator<byte[]> comparator() {
+                return (a, b) -> {
+                    for (int i = 0; i < a.length && i < b.length; i++) {
+                        int c = Integer.compare(a[i] & 0xff, b[i] & 0xff);
+                        if (c != 0) return c;
+                    }
+                    return Integer.compare(a.length, b.length);
+                };
+            }
+        };
+    }
+
+    /**
+     * Name stored in the file and checked when it is opened.
+     */
+    String name();
+
+    /**
+     * Number of bytes of every key.
+     */
+    int width();
+
+    /**
+     * Puts {@link #width()} bytes of the key at the position of the buffer.
+     */
+    void write(ByteBuffer buffer, T key);
+
+    /**
+     * Reads the key at the offset without moving the position of the buffer, which is shared between threads.
+     */
+    T read(ByteBuffer buffer, int offset);
+
+    /**
+     * Order of keys in files.
+     */
+    Comparator<T> comparator();
+}
@@ -0,0 +1,754 @@
+package ru.ifmo.ctddev.volhov.arrayset;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Mutable sorted set made of a small write buffer and immutable {@link ArraySet} runs.
+ * <p>
+ * Insertions and removals go to the buffer; a removal of an element of a run is a tombstone hiding it.
+ * A full buffer is frozen into a new run, and runs are merged on the executor, newer ones with older ones
+ * of comparable size, so there are {@code O(log n)} runs. The merge into the oldest run drops
+ * tombstones. Lookups check the buffer and then binary search the runs, newest first.
+ * <p>
+ * The set is not synchronized, as {@link TreeSet}; merges in the background only replace runs, which are
+ * immutable. Views are backed by the set, as views of {@link TreeSet}: changes of the set are seen in its views
+ * and the other way round, and their lookups take the same time as lookups of the set; {@code size()} of a
+ * view counts its elements. Iterators are snapshots: they don't see later changes and never throw
+ * {@link ConcurrentModificationException}. {@link #snapshot()} makes an immutable copy.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+@SuppressWarnings({"NullableProblems", "unchecked"})
+public class LogStructuredSet<T> extends AbstractSet<T> implements NavigableSet<T> {
+    public static final int DEFAULT_BUFFER_CAPACITY = 4096;
+    /**
+     * Newer runs are merged with an older one when they are at least {@code 1 / MERGE_RATIO} of its size,
+     * which keeps few runs to search, at the cost of merging every element about {@code MERGE_RATIO / 2}
+     * times per run size.
+     */
+    private static final int MERGE_RATIO = 8;
+    /**
+     * If merges in the background fall behind and there are more runs, the writer merges them itself.
+     */
+    private static final int MAX_RUNS = 16;
+
+    /**
+     * Elements added and removed relative to older runs, disjoint.
+     */
+    private static final class Run<T> {
+        final ArraySet<T> added, removed;
+
+        Run(ArraySet<T> added, ArraySet<T> removed) {
+            this.added = added;
+            this.removed = removed;
+        }
+
+        int size() {
+            return added.size() + removed.size();
+        }
+    }
+
+    private final Comparator<T> comparator;
+    private final boolean comparatorNative;
+    private final int bufferCapacity;
+    private final Executor executor;
+    private TreeSet<T> added, removed;
+    /**
+     * Runs from the newest to the oldest; lists are never modified, but replaced under {@link #runsLock}.
+     */
+    private volatile List<Run<T>> runs = Collections.emptyList();
+    private final Object runsLock = new Object();
+    private final Object compactionLock = new Object();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private int size;
+
+    public <E extends Comparable<T>> LogStructuredSet() {
+        this((t, t1) -> ((E) t).compareTo(t1), true, DEFAULT_BUFFER_CAPACITY, ForkJoinPool.commonPool());
+    }
+
+    public LogStructuredSet(Comparator<T> comparator) {
+        this(comparator, DEFAULT_BUFFER_CAPACITY, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param bufferCapacity number of changes kept in the buffer before it is frozen into a run
+     * @param executor       executor to merge runs on
+     */
+    public LogStructuredSet(Comparator<T> comparator, int bufferCapacity, Executor executor) {
+        this(comparator, false, bufferCapacity, executor);
+    }
+
+    private LogStructuredSet(Comparator<T> comparator, boolean comparatorNative, int bufferCapacity,
+                             Executor executor) {
+        if (bufferCapacity <= 0) throw new IllegalArgumentException("Buffer capacity must be positive");
+        this.comparator = comparator;
+        this.comparatorNative = comparatorNative;
+        this.bufferCapacity = bufferCapacity;
+        this.executor = executor;
+        added = new TreeSet<>(comparator);
+        removed = new TreeSet<>(comparator);
+    }
+
+    @Override
+    public boolean add(T t) {
+        if (isLive(t, runs)) return false;
+        if (!removed.remove(t) || !liveIn(t, runs)) {
+            added.add(t);
+        }
+        size++;
+        flushIfFull();
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        T t = (T) o;
+        if (!isLive(t, runs)) return false;
+        added.remove(t);
+        if (liveIn(t, runs)) {
+            removed.add(t);
+        }
+        size--;
+        flushIfFull();
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        added = new TreeSet<>(comparator);
+        removed = new TreeSet<>(comparator);
+        synchronized (runsLock) {
+            runs = Collections.emptyList();
+        }
+        size = 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o == null) throw new NullPointerException();
+        return isLive((T) o, runs);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private boolean isLive(T t, List<Run<T>> runs) {
+        if (added.contains(t)) return true;
+        if (removed.contains(t)) return false;
+        return liveIn(t, runs);
+    }
+
+    /**
+     * Whether the element is in the runs: the newest run mentioning it has added it.
+     */
+    private boolean liveIn(T t, List<Run<T>> runs) {
+        for (Run<T> run : runs) {
+            if (run.added.contains(t)) return true;
+            if (run.removed.contains(t)) return false;
+        }
+        return false;
+    }
+
+    /**
+     * Nearest live element to {@code t} in the direction, or the first one in it if {@code t} is null.
+     */
+    private T find(T t, boolean inclusive, boolean ascending) {
+        List<Run<T>> runs = this.runs;
+        while (true) {
+            // of equal candidates, the one of the newest source is taken: 0 is the buffer, i + 1 is the i-th run
+            T best = candidate(added, t, inclusive, ascending);
+            int source = 0;
+            for (int i = 0; i < runs.size(); i++) {
+                T c = candidate(runs.get(i).added, t, inclusive, ascending);
+                if (c != null && (best == null || (ascending ? comparator.compare(c, best) < 0
+                        : comparator.compare(c, best) > 0))) {
+                    best = c;
+                    source = i + 1;
+                }
+            }
+            if (best == null || !removedAfter(best, source, runs)) return best;
+            t = best;
+            inclusive = false;
+        }
+    }
+
+    /**
+     * Whether the element is removed by a source newer than the given one. Newer sources can't have added it,
+     * so only their tombstones, which are few, are searched.
+     */
+    private boolean removedAfter(T t, int source, List<Run<T>> runs) {
+        if (source == 0) return false;
+        if (removed.contains(t)) return true;
+        for (int i = 0; i < source - 1; i++) {
+            if (runs.get(i).removed.contains(t)) return true;
+        }
+        return false;
+    }
+
+    private static <T> T candidate(NavigableSet<T> set, T t, boolean inclusive, boolean ascending) {
+        if (t == null) {
+            return set.isEmpty() ? null : ascending ? set.first() : set.last();
+        }
+        if (ascending) {
+            return inclusive ? set.ceiling(t) : set.higher(t);
+        } else {
+            return inclusive ? set.floor(t) : set.lower(t);
+        }
+    }
+
+    @Override
+    public T lower(T t) {
+        return find(Objects.requireNonNull(t), false, false);
+    }
+
+    @Override
+    public T floor(T t) {
+        return find(Objects.requireNonNull(t), true, false);
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return find(Objects.requireNonNull(t), true, true);
+    }
+
+    @Override
+    public T higher(T t) {
+        return find(Objects.requireNonNull(t), false, true);
+    }
+
+    @Override
+    public T first() {
+        T t = find(null, true, true);
+        if (t == null) throw new NoSuchElementException();
+        return t;
+    }
+
+    @Override
+    public T last() {
+        T t = find(null, true, false);
+        if (t == null) throw new NoSuchElementException();
+        return t;
+    }
+
+    @Override
+    public T pollFirst() {
+        T t = find(null, true, true);
+        if (t != null) remove(t);
+        return t;
+    }
+
+    @Override
+    public T pollLast() {
+        T t = find(null, true, false);
+        if (t != null) remove(t);
+        return t;
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        if (!comparatorNative) return comparator;
+        else return null;
+    }
+
+    /**
+     * Iterator over the current elements; {@link Iterator#remove()} removes them from the set.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return removing(new MergingIterator(null, true, null, true, true));
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return removing(new MergingIterator(null, true, null, true, false));
+    }
+
+    private Iterator<T> removing(Iterator<T> merged) {
+        return new Iterator<T>() {
+            private T last;
+
+            @Override
+            public boolean hasNext() {
+                return merged.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return last = merged.next();
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) throw new IllegalStateException();
+                LogStructuredSet.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    /**
+     * Merge of the buffer and the runs in the given direction from {@code from} up to {@code to}, either of which
+     * may be {@code null} for no bound, the newest mention of every element deciding whether it is in the set.
+     */
+    private class MergingIterator implements Iterator<T> {
+        private final Comparator<T> order;
+        private final PriorityQueue<Cursor> queue;
+        private final T to;
+        private final boolean toInclusive;
+        private T next;
+
+        private class Cursor {
+            final Iterator<T> iterator;
+            final int age;
+            final boolean live;
+            T current;
+
+            Cursor(NavigableSet<T> set, int age, boolean live) {
+                this.iterator = set.iterator();
+                this.age = age;
+                this.live = live;
+            }
+
+            boolean advance() {
+                if (!iterator.hasNext()) return false;
+                current = iterator.next();
+                return true;
+            }
+        }
+
+        MergingIterator(T from, boolean fromInclusive, T to, boolean toInclusive, boolean ascending) {
+            this.order = ascending ? comparator : Collections.reverseOrder(comparator);
+            this.to = to;
+            this.toInclusive = toInclusive;
+            queue = new PriorityQueue<>((a, b) -> {
+                int c = order.compare(a.current, b.current);
+                return c != 0 ? c : Integer.compare(a.age, b.age);
+            });
+            boolean inclusive = fromInclusive;
+            List<Run<T>> runs = LogStructuredSet.this.runs;
+            offer(freeze(added), 0, true, from, inclusive);
+            offer(freeze(removed), 0, false, from, inclusive);
+            for (int i = 0; i < runs.size(); i++) {
+                offer(runs.get(i).added, i + 1, true, from, inclusive);
+                offer(runs.get(i).removed, i + 1, false, from, inclusive);
+            }
+            next = advance();
+        }
+
+        private void offer(ArraySet<T> set, int age, boolean live, T from, boolean inclusive) {
+            NavigableSet<T> ordered = order == comparator ? set : set.descendingSet();
+            Cursor cursor = new Cursor(from == null ? ordered : ordered.tailSet(from, inclusive), age, live);
+            if (cursor.advance()) queue.add(cursor);
+        }
+
+        private T advance() {
+            while (!queue.isEmpty()) {
+                Cursor newest = queue.poll();
+                T t = newest.current;
+                if (to != null) {
+                    int c = order.compare(t, to);
+                    if (c > 0 || c == 0 && !toInclusive) {
+                        queue.clear();
+                        return null;
+                    }
+                }
+                while (!queue.isEmpty() && comparator.compare(queue.peek().current, t) == 0) {
+                    Cursor older = queue.poll();
+                    if (older.advance()) queue.add(older);
+                }
+                if (newest.advance()) queue.add(newest);
+                if (newest.live) return t;
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (next == null) throw new NoSuchElementException();
+            T t = next;
+            next = advance();
+            return t;
+        }
+    }
+
+    private ArraySet<T> freeze(TreeSet<T> set) {
+        return ArraySet.fromSorted((T[]) set.toArray(), comparator);
+    }
+
+    /**
+     * Immutable copy of the current elements.
+     */
+    public ArraySet<T> snapshot() {
+        List<T> elements = new ArrayList<>(size);
+        for (Iterator<T> it = new MergingIterator(null, true, null, true, true); it.hasNext(); ) {
+            elements.add(it.next());
+        }
+        T[] array = (T[]) elements.toArray();
+        return ArraySet.of(new ArrayWrapper<T>(array, comparator), comparatorNative);
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return new View(null, true, null, true, true);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        if (fromElement == null || toElement == null) throw new NullPointerException();
+        if (comparator.compare(fromElement, toElement) > 0)
+            throw new IllegalArgumentException("First element must be less than the second one");
+        return new View(fromElement, fromInclusive, toElement, toInclusive, false);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return new View(null, true, Objects.requireNonNull(toElement), inclusive, false);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return new View(Objects.requireNonNull(fromElement), inclusive, null, true, false);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, T toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    /**
+     * Range {@code [low, high]} of the set, bounds being exclusive unless told otherwise and {@code null} for
+     * no bound, seen in ascending or descending order. Lookups are lookups of the set clamped to the range.
+     */
+    private class View extends AbstractSet<T> implements NavigableSet<T> {
+        private final T low, high;
+        private final boolean lowInclusive, highInclusive;
+        private final boolean descending;
+
+        View(T low, boolean lowInclusive, T high, boolean highInclusive, boolean descending) {
+            this.low = low;
+            this.lowInclusive = lowInclusive;
+            this.high = high;
+            this.highInclusive = highInclusive;
+            this.descending = descending;
+        }
+
+        private boolean tooLow(T t) {
+            if (low == null) return false;
+            int c = comparator.compare(t, low);
+            return c < 0 || c == 0 && !lowInclusive;
+        }
+
+        private boolean tooHigh(T t) {
+            if (high == null) return false;
+            int c = comparator.compare(t, high);
+            return c > 0 || c == 0 && !highInclusive;
+        }
+
+        private boolean inRange(T t) {
+            return !tooLow(t) && !tooHigh(t);
+        }
+
+        /**
+         * Whether a bound of a view of this view may be the given one: an exclusive bound may equal the bound of
+         * this view even if it is exclusive.
+         */
+        private boolean inRange(T t, boolean inclusive) {
+            if (inclusive) return inRange(t);
+            return (low == null || comparator.compare(t, low) >= 0)
+                    && (high == null || comparator.compare(t, high) <= 0);
+        }
+
+        private T inRangeOrNull(T t) {
+            return t == null || !inRange(t) ? null : t;
+        }
+
+        // Lookups in ascending order, regardless of the direction of the view.
+
+        private T lowest() {
+            return inRangeOrNull(find(low, lowInclusive, true));
+        }
+
+        private T highest() {
+            return inRangeOrNull(find(high, highInclusive, false));
+        }
+
+        private T ceilingAscending(T t, boolean inclusive) {
+            return tooLow(t) ? lowest() : inRangeOrNull(find(t, inclusive, true));
+        }
+
+        private T floorAscending(T t, boolean inclusive) {
+            return tooHigh(t) ? highest() : inRangeOrNull(find(t, inclusive, false));
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (o == null) throw new NullPointerException();
+            return inRange((T) o) && LogStructuredSet.this.contains(o);
+        }
+
+        @Override
+        public boolean add(T t) {
+            if (!inRange(Objects.requireNonNull(t))) throw new IllegalArgumentException("Element is out of range");
+            return LogStructuredSet.this.add(t);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (o == null) throw new NullPointerException();
+            return inRange((T) o) && LogStructuredSet.this.remove(o);
+        }
+
+        /**
+         * Number of elements in the range, counted by iterating over them.
+         */
+        @Override
+        public int size() {
+            int size = 0;
+            for (Iterator<T> it = iterator(); it.hasNext(); it.next()) {
+                size++;
+            }
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return lowest() == null;
+        }
+
+        @Override
+        public T lower(T t) {
+            Objects.requireNonNull(t);
+            return descending ? ceilingAscending(t, false) : floorAscending(t, false);
+        }
+
+        @Override
+        public T floor(T t) {
+            Objects.requireNonNull(t);
+            return descending ? ceilingAscending(t, true) : floorAscending(t, true);
+        }
+
+        @Override
+        public T ceiling(T t) {
+            Objects.requireNonNull(t);
+            return descending ? floorAscending(t, true) : ceilingAscending(t, true);
+        }
+
+        @Override
+        public T higher(T t) {
+            Objects.requireNonNull(t);
+            return descending ? floorAscending(t, false) : ceilingAscending(t, false);
+        }
+
+        @Override
+        public T first() {
+            T t = descending ? highest() : lowest();
+            if (t == null) throw new NoSuchElementException();
+            return t;
+        }
+
+        @Override
+        public T last() {
+            T t = descending ? lowest() : highest();
+            if (t == null) throw new NoSuchElementException();
+            return t;
+        }
+
+        @Override
+        public T pollFirst() {
+            T t = descending ? highest() : lowest();
+            if (t != null) LogStructuredSet.this.remove(t);
+            return t;
+        }
+
+        @Override
+        public T pollLast() {
+            T t = descending ? lowest() : highest();
+            if (t != null) LogStructuredSet.this.remove(t);
+            return t;
+        }
+
+        @Override
+        public Comparator<? super T> comparator() {
+            if (!descending) return LogStructuredSet.this.comparator();
+            return comparatorNative ? Collections.reverseOrder() : Collections.reverseOrder(comparator);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return descending ? removing(new MergingIterator(high, highInclusive, low, lowInclusive, false))
+                    : removing(new MergingIterator(low, lowInclusive, high, highInclusive, true));
+        }
+
+        @Override
+        public Iterator<T> descendingIterator() {
+            return descendingSet().iterator();
+        }
+
+        @Override
+        public NavigableSet<T> descendingSet() {
+            return new View(low, lowInclusive, high, highInclusive, !descending);
+        }
+
+        /**
+         * View of the range of this view between the bounds, given in ascending order.
+         */
+        private View range(T from, boolean fromInclusive, T to, boolean toInclusive) {
+            if (from != null && !inRange(from, fromInclusive) || to != null && !inRange(to, toInclusive)) {
+                throw new IllegalArgumentException("Element is out of range");
+            }
+            return new View(from == null ? low : from, from == null ? lowInclusive : fromInclusive,
+                    to == null ? high : to, to == null ? highInclusive : toInclusive, descending);
+        }
+
+        @Override
+        public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+            if (fromElement == null || toElement == null) throw new NullPointerException();
+            int c = comparator.compare(fromElement, toElement);
+            if (descending ? c < 0 : c > 0)
+                throw new IllegalArgumentException("First element must be less than the second one");
+            return descending ? range(toElement, toInclusive, fromElement, fromInclusive)
+                    : range(fromElement, fromInclusive, toElement, toInclusive);
+        }
+
+        @Override
+        public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+            Objects.requireNonNull(toElement);
+            return descending ? range(toElement, inclusive, null, true) : range(null, true, toElement, inclusive);
+        }
+
+        @Override
+        public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+            Objects.requireNonNull(fromElement);
+            return descending ? range(null, true, fromElement, inclusive) : range(fromElement, inclusive, null, true);
+        }
+
+        @Override
+        public NavigableSet<T> subSet(T fromElement, T toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public NavigableSet<T> headSet(T toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public NavigableSet<T> tailSet(T fromElement) {
+            return tailSet(fromElement, true);
+        }
+    }
+
+    /**
+     * Number of immutable runs, for monitoring of merges.
+     */
+    public int runCount() {
+        return runs.size();
+    }
+
+    private void flushIfFull() {
+        if (added.size() + removed.size() < bufferCapacity) return;
+        Run<T> run = new Run<>(freeze(added), freeze(removed));
+        added = new TreeSet<>(comparator);
+        removed = new TreeSet<>(comparator);
+        List<Run<T>> current;
+        synchronized (runsLock) {
+            current = new ArrayList<>(runs.size() + 1);
+            current.add(run);
+            current.addAll(runs);
+            runs = current = Collections.unmodifiableList(current);
+        }
+        if (current.size() > MAX_RUNS) {
+            compactOnce(false);
+        } else if (mergeGroup(current) > 0 && compacting.compareAndSet(false, true)) {
+            executor.execute(this::compactInBackground);
+        }
+    }
+
+    private void compactInBackground() {
+        try {
+            while (compactOnce(false)) {
+                // merging while there are runs to merge
+            }
+        } finally {
+            compacting.set(false);
+        }
+        // a run might have been added after the last merge and before the flag was reset
+        if (mergeGroup(runs) > 0 && compacting.compareAndSet(false, true)) {
+            executor.execute(this::compactInBackground);
+        }
+    }
+
+    /**
+     * Merges all runs into one in the calling thread, so that lookups search one array.
+     */
+    public void compact() {
+        compactOnce(true);
+    }
+
+    /**
+     * Index of the oldest run to merge the newer ones with, 0 if there is nothing to merge: newer runs are merged
+     * while their total size is comparable to the size of the next older run.
+     */
+    private static <T> int mergeGroup(List<Run<T>> runs) {
+        if (runs.isEmpty()) return 0;
+        long total = runs.get(0).size();
+        int k = 0;
+        while (k + 1 < runs.size() && total * MERGE_RATIO >= runs.get(k + 1).size()) {
+            total += runs.get(++k).size();
+        }
+        return k;
+    }
+
+    private boolean compactOnce(boolean full) {
+        synchronized (compactionLock) {
+            List<Run<T>> snapshot = runs;
+            int k = full ? snapshot.size() - 1 : mergeGroup(snapshot);
+            if (k <= 0) return false;
+            boolean oldest = k == snapshot.size() - 1;
+            Run<T> merged = snapshot.get(k);
+            if (oldest) {
+                merged = new Run<>(merged.added, freeze(new TreeSet<>(comparator)));
+            }
+            for (int i = k - 1; i >= 0; i--) {
+                Run<T> newer = snapshot.get(i);
+                merged = new Run<>(newer.added.union(merged.added.difference(newer.removed)),
+                        oldest ? merged.removed : newer.removed.union(merged.removed.difference(newer.added)));
+            }
+            synchronized (runsLock) {
+                // runs only get flushed in front of the snapshot, or cleared
+                List<Run<T>> current = runs;
+                int at = current.size() - snapshot.size();
+                if (at < 0) return false;
+                for (int i = 0; i < snapshot.size(); i++) {
+                    if (current.get(at + i) != snapshot.get(i)) return false;
+                }
+                List<Run<T>> replaced = new ArrayList<>(current.subList(0, at));
+                replaced.add(merged);
+                replaced.addAll(snapshot.subList(k + 1, snapshot.size()));
+                runs = Collections.unmodifiableList(replaced);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package ru.ifmo.ctddev.volhov.arrayset;
+
+import java.util.*;
+
+import static ru.ifmo.ctddev.volhov.arrayset.SetChecks.*;
+
+/**
+ * Compares {@link LogStructuredSet} with {@link TreeSet} under random changes. Buffers are small and background
+ * merges are queued and run at random moments, so lookups go through several runs, with removals of elements of
+ * older runs shadowed by tombstones of newer ones. Views are taken before the changes and checked after every
+ * one of them, whichever set or view the change was made through.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class LogStructuredSetTest {
+    public static void main(String[] args) {
+        tombstones();
+        Random random = new Random(20);
+        List<Integer> probes = range(-5, 55);
+        for (int test = 0; test < 200; test++) {
+            Deque<Runnable> merges = new ArrayDeque<>();
+            LogStructuredSet<Integer> actual = test % 4 == 0 ? new LogStructuredSet<>()
+                    : new LogStructuredSet<>(Integer::compare, 1 + random.nextInt(8), merges::add);
+            TreeSet<Integer> expected = test % 4 == 0 ? new TreeSet<>() : new TreeSet<>(Integer::compare);
+            changes(actual, expected, merges, probes, random);
+            views(actual, expected, merges, probes, random);
+        }
+        System.out.println("OK");
+    }
+
+    /**
+     * Removals and additions of elements frozen into runs.
+     */
+    private static void tombstones() {
+        Deque<Runnable> merges = new ArrayDeque<>();
+        LogStructuredSet<Integer> set = new LogStructuredSet<>(Integer::compare, 2, merges::add);
+        for (int i = 1; i <= 8; i++) {
+            set.add(i);
+        }
+        equal(set.runCount() > 1, true, "several runs");
+        equal(set.remove(3), true, "remove 3");
+        equal(set.remove(3), false, "remove 3 again");
+        set.add(100);
+        equal(set.contains(3), false, "contains 3 after removal");
+        equal(set.floor(3), 2, "floor 3");
+        equal(set.ceiling(3), 4, "ceiling 3");
+        equal(set.size(), 8, "size");
+        ArraySet<Integer> snapshot = set.snapshot();
+        equal(set.add(3), true, "add 3 back");
+        set.add(101);
+        equal(set.contains(3), true, "contains 3 after adding back");
+        equal(new ArrayList<>(snapshot), Arrays.asList(1, 2, 4, 5, 6, 7, 8, 100), "snapshot");
+        set.compact();
+        equal(set.runCount(), 1, "runs after compact");
+        equal(new ArrayList<>(set), Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 100, 101), "elements after compact");
+        merges.forEach(Runnable::run);
+        equal(new ArrayList<>(set), Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 100, 101), "elements after merges");
+    }
+
+    private static void changes(LogStructuredSet<Integer> actual, TreeSet<Integer> expected, Deque<Runnable> merges,
+                                List<Integer> probes, Random random) {
+        for (int step = 0; step < 300; step++) {
+            int value = random.nextInt(50);
+            int kind = random.nextInt(100);
+            if (kind < 45) {
+                equal(actual.add(value), expected.add(value), "add " + value);
+            } else if (kind < 80) {
+                equal(actual.remove(value), expected.remove(value), "remove " + value);
+            } else if (kind < 85) {
+                equal(actual.pollFirst(), expected.pollFirst(), "pollFirst");
+            } else if (kind < 90) {
+                equal(actual.pollLast(), expected.pollLast(), "pollLast");
+            } else if (kind < 94) {
+                removeByIterator(actual, expected, value);
+            } else if (kind < 97) {
+                actual.compact();
+                equal(actual.runCount() <= 1, true, "runs after compact");
+            } else if (kind < 98) {
+                actual.clear();
+                expected.clear();
+            } else {
+                equal(actual.snapshot(), expected, "snapshot");
+            }
+            if (random.nextInt(10) == 0) {
+                mergeSome(merges, random);
+            }
+            if (step % 10 == 0) {
+                sameSet(actual, expected, probes);
+            }
+        }
+        sameViews(actual, expected, probes, random, 3);
+    }
+
+    private static void removeByIterator(NavigableSet<Integer> actual, NavigableSet<Integer> expected, int value) {
+        for (Iterator<Integer> it = actual.iterator(); it.hasNext(); ) {
+            if (it.next() >= value) {
+                it.remove();
+                break;
+            }
+        }
+        for (Iterator<Integer> it = expected.iterator(); it.hasNext(); ) {
+            if (it.next() >= value) {
+                it.remove();
+                break;
+            }
+        }
+    }
+
+    private static void mergeSome(Deque<Runnable> merges, Random random) {
+        for (int i = random.nextInt(merges.size() + 1); i > 0; i--) {
+            merges.poll().run();
+        }
+    }
+
+    /**
+     * Changes the set through a chain of views and checks every view of the chain after each change.
+     */
+    private static void views(LogStructuredSet<Integer> actual, TreeSet<Integer> expected, Deque<Runnable> merges,
+                              List<Integer> probes, Random random) {
+        List<NavigableSet<Integer>> actualViews = new ArrayList<>(), expectedViews = new ArrayList<>();
+        actualViews.add(actual);
+        expectedViews.add(expected);
+        for (int depth = 0; depth < 4; depth++) {
+            NavigableSet<Integer> actualView = actualViews.get(depth), expectedView = expectedViews.get(depth);
+            int from = random.nextInt(60) - 5, to = random.nextInt(60) - 5;
+            Comparator<? super Integer> order = expectedView.comparator() == null ? Comparator.naturalOrder()
+                    : expectedView.comparator();
+            if (order.compare(from, to) > 0) {
+                int t = from;
+                from = to;
+                to = t;
+            }
+            boolean fromInclusive = random.nextBoolean(), toInclusive = random.nextBoolean();
+            int kind = random.nextInt(4);
+            try {
+                expectedViews.add(kind == 0 ? expectedView.descendingSet()
+                        : kind == 1 ? expectedView.subSet(from, fromInclusive, to, toInclusive)
+                        : kind == 2 ? expectedView.headSet(to, toInclusive)
+                        : expectedView.tailSet(from, fromInclusive));
+            } catch (IllegalArgumentException e) {
+                break;
+            }
+            actualViews.add(kind == 0 ? actualView.descendingSet()
+                    : kind == 1 ? actualView.subSet(from, fromInclusive, to, toInclusive)
+                    : kind == 2 ? actualView.headSet(to, toInclusive)
+                    : actualView.tailSet(from, fromInclusive));
+        }
+        for (int step = 0; step < 100; step++) {
+            int level = random.nextInt(actualViews.size());
+            NavigableSet<Integer> actualView = actualViews.get(level), expectedView = expectedViews.get(level);
+            int value = random.nextInt(60) - 5;
+            int kind = random.nextInt(4);
+            if (kind == 0) {
+                Object result = outcome(() -> expectedView.add(value));
+                equal(outcome(() -> actualView.add(value)), result, "add " + value + " to view " + level);
+            } else if (kind == 1) {
+                equal(actualView.remove(value), expectedView.remove(value), "remove " + value + " from view " + level);
+            } else if (kind == 2) {
+                equal(actualView.pollFirst(), expectedView.pollFirst(), "pollFirst of view " + level);
+            } else {
+                removeByIterator(actualView, expectedView, value);
+            }
+            if (random.nextInt(10) == 0) {
+                mergeSome(merges, random);
+            }
+            for (int i = 0; i < actualViews.size(); i++) {
+                sameSet(actualViews.get(i), expectedViews.get(i), probes);
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package ru.ifmo.ctddev.volhov.arrayset;
+
+import java.util.*;
+
+/**
+ * Immutable sorted set of {@code long} values, stored unboxed in one {@code long[]} in natural order.
+ * <p>
+ * Views share the array with the set they were taken from, like the views of {@link ArraySet}: a view is a range
+ * {@code [leftBound, rightBound)} of the array and a flag telling if it is traversed in reverse order. Besides
+ * the {@link NavigableSet} methods, which box, there are primitive counterparts: {@link #contains(long)},
+ * {@link #firstLong}, {@link #floorLong} and the rest, and {@link #subSet(long, boolean, long, boolean)}.
+ * Navigation methods return an empty {@link OptionalLong} if there is no such element. Views and navigation are
+ * shared with {@link IntArraySet} through {@link PrimitiveArraySet}.
+ * <p>
+ * The set takes {@code 8} bytes per element, against about 20 for {@code ArraySet<Long>}.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class LongArraySet extends PrimitiveArraySet<Long, LongArraySet> {
+    private static final long[] EMPTY = new long[0];
+
+    private final long[] array;
+
+    public LongArraySet() {
+        this(EMPTY, 0, 0, false);
+    }
+
+    /**
+     * Creates a set of the given values, duplicates are dropped. The array is copied.
+     *
+     * @param values values of the set in any order
+     */
+    public LongArraySet(long... values) {
+        this(sortedUnique(values.clone()), false);
+    }
+
+    /**
+     * Creates a set of the values of the collection, duplicates are dropped.
+     *
+     * @param collection values of the set in any order, must not contain {@code null}
+     */
+    public LongArraySet(Collection<Long> collection) {
+        this(sortedUnique(unbox(collection)), false);
+    }
+
+    private LongArraySet(long[] array, boolean reversed) {
+        this(array, 0, array.length, reversed);
+    }
+
+    private LongArraySet(long[] array, int leftBound, int rightBound, boolean reversed) {
+        super(leftBound, rightBound, reversed);
+        this.array = array;
+    }
+
+    private static long[] unbox(Collection<Long> collection) {
+        long[] values = new long[collection.size()];
+        int i = 0;
+        for (Long value : collection) {
+            values[i++] = value;
+        }
+        return i == values.length ? values : Arrays.copyOf(values, i);
+    }
+
+    private static long[] sortedUnique(long[] values) {
+        Arrays.sort(values);
+        int length = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (length == 0 || values[length - 1] != values[i]) {
+                values[length++] = values[i];
+            }
+        }
+        return length == values.length ? values : Arrays.copyOf(values, length);
+    }
+
+    private int search(long value) {
+        return Arrays.binarySearch(array, leftBound, rightBound, value);
+    }
+
+    @Override
+    int search(Long value) {
+        return search(value.longValue());
+    }
+
+    @Override
+    int compare(Long value, Long value1) {
+        return Long.compare(value, value1);
+    }
+
+    @Override
+    Long boxed(int index) {
+        return array[index];
+    }
+
+    @Override
+    int hashAt(int index) {
+        return Long.hashCode(array[index]);
+    }
+
+    @Override
+    LongArraySet view(int from, int to, boolean reversed) {
+        return new LongArraySet(array, from, to, reversed);
+    }
+
+    private OptionalLong valueAt(int index) {
+        return inBounds(index) ? OptionalLong.of(array[index]) : OptionalLong.empty();
+    }
+
+    public boolean contains(long value) {
+        return search(value) >= 0;
+    }
+
+    public OptionalLong lowerLong(long value) {
+        return valueAt(before(search(value), false));
+    }
+
+    public OptionalLong floorLong(long value) {
+        return valueAt(before(search(value), true));
+    }
+
+    public OptionalLong ceilingLong(long value) {
+        return valueAt(after(search(value), true));
+    }
+
+    public OptionalLong higherLong(long value) {
+        return valueAt(after(search(value), false));
+    }
+
+    /**
+     * @return the first element of the view
+     * @throws NoSuchElementException if the set is empty
+     */
+    public long firstLong() {
+        return array[firstIndex()];
+    }
+
+    /**
+     * @return the last element of the view
+     * @throws NoSuchElementException if the set is empty
+     */
+    public long lastLong() {
+        return array[lastIndex()];
+    }
+
+    /**
+     * @return elements of the view in its order
+     */
+    public long[] toLongArray() {
+        if (!reversed) return Arrays.copyOfRange(array, leftBound, rightBound);
+        long[] result = new long[size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = array[index(i)];
+        }
+        return result;
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int position = 0;
+
+            @Override
+            public boolean hasNext() {
+                return position < size();
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return array[index(position++)];
+            }
+        };
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    public LongArraySet subSet(long from, boolean fromInclusive, long to, boolean toInclusive) {
+        return subRange(Long.compare(from, to), search(from), fromInclusive, search(to), toInclusive);
+    }
+
+    public LongArraySet headSet(long to, boolean inclusive) {
+        return headRange(search(to), inclusive);
+    }
+
+    public LongArraySet tailSet(long from, boolean inclusive) {
+        return tailRange(search(from), inclusive);
+    }
+}
@@ -0,0 +1,261 @@
+package ru.ifmo.ctddev.volhov.arrayset;
+
+import java.util.*;
+
+/**
+ * Views, navigation and the boxed {@link NavigableSet} methods of sets of primitives stored in a sorted array,
+ * {@link IntArraySet} and {@link LongArraySet}.
+ * <p>
+ * A view is a range {@code [leftBound, rightBound)} of the array and a flag telling if it is traversed in reverse
+ * order. Subclasses keep the array and give access to it by indices: {@link #search} finds a value in the view
+ * as {@link Arrays#binarySearch} does, {@link #boxed(int)} boxes an element and {@link #compare} compares boxed
+ * values in natural order. Everything else is computed from indices here, so the primitive methods of subclasses
+ * are one-liners over the same helpers.
+ *
+ * @param <T> boxed type of elements
+ * @param <S> type of views
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+abstract class PrimitiveArraySet<T, S extends PrimitiveArraySet<T, S>>
+        extends AbstractSet<T> implements NavigableSet<T> {
+    final int leftBound, rightBound; // [..)
+    final boolean reversed;
+
+    PrimitiveArraySet(int leftBound, int rightBound, boolean reversed) {
+        this.leftBound = leftBound;
+        this.rightBound = leftBound >= rightBound ? leftBound : rightBound;
+        this.reversed = reversed;
+    }
+
+    /**
+     * Binary search of the value in the view.
+     *
+     * @return index of the value in the array, or {@code -insertion point - 1}
+     */
+    abstract int search(T value);
+
+    /**
+     * Comparison of the values in natural order.
+     */
+    abstract int compare(T value, T value1);
+
+    /**
+     * Boxed element by its index in the array.
+     */
+    abstract T boxed(int index);
+
+    /**
+     * Hash code of the element by its index in the array.
+     */
+    abstract int hashAt(int index);
+
+    /**
+     * View of {@code [from, to)} of the same array.
+     */
+    abstract S view(int from, int to, boolean reversed);
+
+    // Indices below are indices of the array, "found" is a result of search.
+
+    private static int ceilingIndex(int found) {
+        return found >= 0 ? found : -found - 1;
+    }
+
+    private static int higherIndex(int found) {
+        return found >= 0 ? found + 1 : -found - 1;
+    }
+
+    private static int floorIndex(int found) {
+        return found >= 0 ? found : -found - 2;
+    }
+
+    private static int lowerIndex(int found) {
+        return found >= 0 ? found - 1 : -found - 2;
+    }
+
+    /**
+     * Index of the last element before the found one in the order of the view (floor if {@code inclusive},
+     * lower otherwise), out of bounds if there is none.
+     */
+    int before(int found, boolean inclusive) {
+        if (reversed) return inclusive ? ceilingIndex(found) : higherIndex(found);
+        return inclusive ? floorIndex(found) : lowerIndex(found);
+    }
+
+    /**
+     * Index of the first element after the found one in the order of the view (ceiling if {@code inclusive},
+     * higher otherwise), out of bounds if there is none.
+     */
+    int after(int found, boolean inclusive) {
+        if (reversed) return inclusive ? floorIndex(found) : lowerIndex(found);
+        return inclusive ? ceilingIndex(found) : higherIndex(found);
+    }
+
+    boolean inBounds(int index) {
+        return index >= leftBound && index < rightBound;
+    }
+
+    /**
+     * Index in the array of the element at the position in the view.
+     */
+    int index(int position) {
+        return reversed ? rightBound - 1 - position : leftBound + position;
+    }
+
+    /**
+     * @throws NoSuchElementException if the set is empty
+     */
+    int firstIndex() {
+        if (isEmpty()) throw new NoSuchElementException();
+        return index(0);
+    }
+
+    /**
+     * @throws NoSuchElementException if the set is empty
+     */
+    int lastIndex() {
+        if (isEmpty()) throw new NoSuchElementException();
+        return index(size() - 1);
+    }
+
+    private T boxedOrNull(int index) {
+        return inBounds(index) ? boxed(index) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        if (o == null) throw new NullPointerException();
+        return search((T) o) >= 0; //ClassCastException
+    }
+
+    @Override
+    public T lower(T t) {
+        return boxedOrNull(before(search(t), false));
+    }
+
+    @Override
+    public T floor(T t) {
+        return boxedOrNull(before(search(t), true));
+    }
+
+    @Override
+    public T ceiling(T t) {
+        return boxedOrNull(after(search(t), true));
+    }
+
+    @Override
+    public T higher(T t) {
+        return boxedOrNull(after(search(t), false));
+    }
+
+    @Override
+    public T first() {
+        return boxed(firstIndex());
+    }
+
+    @Override
+    public T last() {
+        return boxed(lastIndex());
+    }
+
+    @Override
+    public T pollFirst() {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " is immutable");
+    }
+
+    @Override
+    public T pollLast() {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " is immutable");
+    }
+
+    @Override
+    public int size() {
+        return rightBound - leftBound;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public S descendingSet() {
+        return view(leftBound, rightBound, !reversed);
+    }
+
+    /**
+     * View from the element at index {@code first} to the one at {@code last}, both in the order of this view.
+     */
+    private S range(int first, int last) {
+        return reversed ? view(last, first + 1, true) : view(first, last + 1, false);
+    }
+
+    /**
+     * @param order comparison of {@code from} and {@code to} in natural order
+     * @param from  result of the search of the first element
+     * @param to    result of the search of the second element
+     */
+    S subRange(int order, int from, boolean fromInclusive, int to, boolean toInclusive) {
+        if (reversed ? order < 0 : order > 0) {
+            throw new IllegalArgumentException("First element must be less than the second one");
+        }
+        return range(after(from, fromInclusive), before(to, toInclusive));
+    }
+
+    S headRange(int to, boolean inclusive) {
+        return range(index(0), before(to, inclusive));
+    }
+
+    S tailRange(int from, boolean inclusive) {
+        return range(after(from, inclusive), index(size() - 1));
+    }
+
+    @Override
+    public S subSet(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        return subRange(compare(from, to), search(from), fromInclusive, search(to), toInclusive);
+    }
+
+    @Override
+    public S headSet(T to, boolean inclusive) {
+        return headRange(search(to), inclusive);
+    }
+
+    @Override
+    public S tailSet(T from, boolean inclusive) {
+        return tailRange(search(from), inclusive);
+    }
+
+    @Override
+    public S subSet(T from, T to) {
+        return subSet(from, true, to, false);
+    }
+
+    @Override
+    public S headSet(T to) {
+        return headSet(to, false);
+    }
+
+    @Override
+    public S tailSet(T from) {
+        return tailSet(from, true);
+    }
+
+    /**
+     * @return {@code null} for the natural order, reverse order for descending views
+     */
+    @Override
+    public Comparator<? super T> comparator() {
+        return reversed ? Collections.reverseOrder() : null;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = leftBound; i < rightBound; i++) {
+            hash += hashAt(i);
+        }
+        return hash;
+    }
+}
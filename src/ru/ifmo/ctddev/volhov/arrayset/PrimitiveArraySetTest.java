@@ -0,0 +1,140 @@
+package ru.ifmo.ctddev.volhov.arrayset;
+
+import java.util.*;
+
+import static ru.ifmo.ctddev.volhov.arrayset.SetChecks.*;
+
+/**
+ * Compares {@link IntArraySet} and {@link LongArraySet} with {@link TreeSet} on random values: boxed and primitive
+ * navigation, views taken by primitive bounds, nested down to a few levels, and arrays of views. Long values are
+ * the int ones shifted beyond the int range.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class PrimitiveArraySetTest {
+    private static final int SHIFT = 33;
+
+    public static void main(String[] args) {
+        Random random = new Random(15);
+        List<Integer> probes = range(-25, 25);
+        List<Long> longProbes = new ArrayList<>();
+        probes.forEach(p -> longProbes.add((long) p << SHIFT));
+        for (int test = 0; test < 300; test++) {
+            int[] values = new int[random.nextInt(30)];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = random.nextInt(41) - 20;
+            }
+            long[] longValues = new long[values.length];
+            TreeSet<Integer> expected = new TreeSet<>();
+            TreeSet<Long> expectedLong = new TreeSet<>();
+            for (int i = 0; i < values.length; i++) {
+                longValues[i] = (long) values[i] << SHIFT;
+                expected.add(values[i]);
+                expectedLong.add(longValues[i]);
+            }
+            checkInts(new IntArraySet(values), expected, probes, random, 4);
+            checkInts(new IntArraySet(expected), expected, probes, random, 0);
+            checkLongs(new LongArraySet(longValues), expectedLong, longProbes, random, 4);
+        }
+        IntArraySet set = new IntArraySet(3, 1, 2);
+        equal(outcome(set::pollFirst), UnsupportedOperationException.class, "pollFirst");
+        equal(outcome(() -> set.subSet(2, true, 1, true)), IllegalArgumentException.class, "subSet(2, 1)");
+        equal(outcome(() -> set.descendingSet().subSet(1, true, 2, true)), IllegalArgumentException.class,
+                "descending subSet(1, 2)");
+        equal(new ArrayList<>(set.descendingSet().headSet(2, true)), Arrays.asList(3, 2), "descending headSet(2)");
+        System.out.println("OK");
+    }
+
+    private static void checkInts(IntArraySet actual, NavigableSet<Integer> expected, List<Integer> probes,
+                                  Random random, int depth) {
+        sameSet(actual, expected, probes);
+        int[] array = new int[expected.size()];
+        int i = 0;
+        for (int value : expected) {
+            array[i++] = value;
+        }
+        equal(Arrays.toString(actual.toIntArray()), Arrays.toString(array), "toIntArray");
+        if (!expected.isEmpty()) {
+            equal(actual.firstInt(), expected.first(), "firstInt");
+            equal(actual.lastInt(), expected.last(), "lastInt");
+        }
+        for (int probe : probes) {
+            equal(actual.contains(probe), expected.contains(probe), "contains " + probe);
+            equal(boxed(actual.lowerInt(probe)), expected.lower(probe), "lowerInt " + probe);
+            equal(boxed(actual.floorInt(probe)), expected.floor(probe), "floorInt " + probe);
+            equal(boxed(actual.ceilingInt(probe)), expected.ceiling(probe), "ceilingInt " + probe);
+            equal(boxed(actual.higherInt(probe)), expected.higher(probe), "higherInt " + probe);
+        }
+        if (depth == 0) return;
+        checkInts(actual.descendingSet(), expected.descendingSet(), probes, random, depth - 1);
+        int from = probes.get(random.nextInt(probes.size())), to = probes.get(random.nextInt(probes.size()));
+        boolean fromInclusive = random.nextBoolean(), toInclusive = random.nextBoolean();
+        if (expected.comparator() == null ? from > to : from < to) {
+            int t = from;
+            from = to;
+            to = t;
+        }
+        NavigableSet<Integer> subSet, headSet, tailSet;
+        try {
+            subSet = expected.subSet(from, fromInclusive, to, toInclusive);
+            headSet = expected.headSet(to, toInclusive);
+            tailSet = expected.tailSet(from, fromInclusive);
+        } catch (IllegalArgumentException e) {
+            return; // the bound is out of the TreeSet view
+        }
+        checkInts(actual.subSet(from, fromInclusive, to, toInclusive), subSet, probes, random, depth - 1);
+        checkInts(actual.headSet(to, toInclusive), headSet, probes, random, depth - 1);
+        checkInts(actual.tailSet(from, fromInclusive), tailSet, probes, random, depth - 1);
+    }
+
+    private static void checkLongs(LongArraySet actual, NavigableSet<Long> expected, List<Long> probes,
+                                   Random random, int depth) {
+        sameSet(actual, expected, probes);
+        long[] array = new long[expected.size()];
+        int i = 0;
+        for (long value : expected) {
+            array[i++] = value;
+        }
+        equal(Arrays.toString(actual.toLongArray()), Arrays.toString(array), "toLongArray");
+        if (!expected.isEmpty()) {
+            equal(actual.firstLong(), expected.first(), "firstLong");
+            equal(actual.lastLong(), expected.last(), "lastLong");
+        }
+        for (long probe : probes) {
+            equal(actual.contains(probe), expected.contains(probe), "contains " + probe);
+            equal(boxed(actual.lowerLong(probe)), expected.lower(probe), "lowerLong " + probe);
+            equal(boxed(actual.floorLong(probe)), expected.floor(probe), "floorLong " + probe);
+            equal(boxed(actual.ceilingLong(probe)), expected.ceiling(probe), "ceilingLong " + probe);
+            equal(boxed(actual.higherLong(probe)), expected.higher(probe), "higherLong " + probe);
+        }
+        if (depth == 0) return;
+        checkLongs(actual.descendingSet(), expected.descendingSet(), probes, random, depth - 1);
+        long from = probes.get(random.nextInt(probes.size())), to = probes.get(random.nextInt(probes.size()));
+        boolean fromInclusive = random.nextBoolean(), toInclusive = random.nextBoolean();
+        if (expected.comparator() == null ? from > to : from < to) {
+            long t = from;
+            from = to;
+            to = t;
+        }
+        NavigableSet<Long> subSet, headSet, tailSet;
+        try {
+            subSet = expected.subSet(from, fromInclusive, to, toInclusive);
+            headSet = expected.headSet(to, toInclusive);
+            tailSet = expected.tailSet(from, fromInclusive);
+        } catch (IllegalArgumentException e) {
+            return; // the bound is out of the TreeSet view
+        }
+        checkLongs(actual.subSet(from, fromInclusive, to, toInclusive), subSet, probes, random, depth - 1);
+        checkLongs(actual.headSet(to, toInclusive), headSet, probes, random, depth - 1);
+        checkLongs(actual.tailSet(from, fromInclusive), tailSet, probes, random, depth - 1);
+    }
+
+    private static Integer boxed(OptionalInt value) {
+        return value.isPresent() ? value.getAsInt() : null;
+    }
+
+    private static Long boxed(OptionalLong value) {
+        return value.isPresent() ? value.getAsLong() : null;
+    }
+}
@@ -0,0 +1,166 @@
+package ru.ifmo.ctddev.volhov.arrayset;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Merges of two sorted ranges of {@link ArrayWrapper}s in one linear pass, used by set operations of
+ * {@link ArraySet}. Ranges are given by logical indices, so reversed wrappers are merged as they are iterated.
+ * <p>
+ * When one range is much longer than the other, runs of the longer one between two consecutive elements of the
+ * shorter one are found by galloping, so that intersection of sets of sizes {@code m < n} takes
+ * {@code O(m log(n / m))} comparisons.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+@SuppressWarnings("unchecked")
+final class SetAlgebra {
+    /**
+     * Elements only in the left range, only in the right one, and in both of them.
+     */
+    static final int LEFT = 1, RIGHT = 2, BOTH = 4;
+    static final int UNION = LEFT | RIGHT | BOTH, INTERSECTION = BOTH, DIFFERENCE = LEFT,
+            SYMMETRIC_DIFFERENCE = LEFT | RIGHT;
+
+    /**
+     * Ranges are galloped through when one of them is this many times longer than the other.
+     */
+    static final int GALLOP_RATIO = 16;
+    /**
+     * Parallel merges of fewer elements than this are done sequentially.
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private SetAlgebra() {
+    }
+
+    /**
+     * Merges {@code [aFrom, aTo)} of {@code a} with {@code [bFrom, bTo)} of {@code b}, both sorted by
+     * {@code order}, keeping elements of the kinds given by {@code op}. Of equal elements, the one of {@code a}
+     * is kept.
+     *
+     * @return wrapper of the result, sorted by {@code order}
+     */
+    static <T> ArrayWrapper<T> merge(ArrayWrapper<T> a, int aFrom, int aTo, ArrayWrapper<T> b, int bFrom, int bTo,
+                                     Comparator<T> order, int op) {
+        T[] out = (T[]) new Object[capacity(aTo - aFrom, bTo - bFrom, op)];
+        int length = merge(a, aFrom, aTo, b, bFrom, bTo, order, op, out);
+        // the unused tail is dropped if it takes more than a half of the array
+        return new ArrayWrapper<>(length < out.length / 2 ? Arrays.copyOf(out, length) : out, length, order);
+    }
+
+    /**
+     * Same as {@link #merge(ArrayWrapper, int, int, ArrayWrapper, int, int, Comparator, int)}, with the ranges
+     * cut into parts merged in parallel in the pool if they hold {@link #PARALLEL_THRESHOLD} elements or more.
+     */
+    static <T> ArrayWrapper<T> parallelMerge(ArrayWrapper<T> a, int aFrom, int aTo,
+                                             ArrayWrapper<T> b, int bFrom, int bTo,
+                                             Comparator<T> order, int op, ForkJoinPool pool) {
+        int total = aTo - aFrom + bTo - bFrom;
+        if (total < PARALLEL_THRESHOLD) {
+            return merge(a, aFrom, aTo, b, bFrom, bTo, order, op);
+        }
+        int parts = Math.min(pool.getParallelism() * 4, total / (PARALLEL_THRESHOLD / 4));
+        if (parts < 2) {
+            return merge(a, aFrom, aTo, b, bFrom, bTo, order, op);
+        }
+        // Parts are cut evenly in the longer range, and at the same elements in the shorter one;
+        // equal elements of both ranges always get into the same part
+        boolean byA = aTo - aFrom >= bTo - bFrom;
+        int[] aSplits = new int[parts + 1], bSplits = new int[parts + 1];
+        aSplits[0] = aFrom;
+        bSplits[0] = bFrom;
+        aSplits[parts] = aTo;
+        bSplits[parts] = bTo;
+        for (int i = 1; i < parts; i++) {
+            if (byA) {
+                aSplits[i] = aFrom + (int) ((long) (aTo - aFrom) * i / parts);
+                bSplits[i] = lowerBound(b, bSplits[i - 1], bTo, a.get(aSplits[i]), order);
+            } else {
+                bSplits[i] = bFrom + (int) ((long) (bTo - bFrom) * i / parts);
+                aSplits[i] = lowerBound(a, aSplits[i - 1], aTo, b.get(bSplits[i]), order);
+            }
+        }
+        Object[][] outs = new Object[parts][];
+        int[] lengths = new int[parts];
+        pool.submit(() -> IntStream.range(0, parts).parallel().forEach(i -> {
+            outs[i] = new Object[capacity(aSplits[i + 1] - aSplits[i], bSplits[i + 1] - bSplits[i], op)];
+            lengths[i] = merge(a, aSplits[i], aSplits[i + 1], b, bSplits[i], bSplits[i + 1], order, op, outs[i]);
+        })).join();
+        int length = 0;
+        for (int l : lengths) {
+            length += l;
+        }
+        T[] out = (T[]) new Object[length];
+        for (int i = 0, k = 0; i < parts; k += lengths[i], i++) {
+            System.arraycopy(outs[i], 0, out, k, lengths[i]);
+        }
+        return new ArrayWrapper<>(out, order);
+    }
+
+    private static int capacity(int aSize, int bSize, int op) {
+        if (op == INTERSECTION) return Math.min(aSize, bSize);
+        if (op == DIFFERENCE) return aSize;
+        return aSize + bSize;
+    }
+
+    private static <T> int merge(ArrayWrapper<T> a, int i, int aTo, ArrayWrapper<T> b, int j, int bTo,
+                                 Comparator<? super T> order, int op, Object[] out) {
+        boolean gallop = aTo - i > (long) GALLOP_RATIO * (bTo - j) || bTo - j > (long) GALLOP_RATIO * (aTo - i);
+        int k = 0;
+        while (i < aTo && j < bTo) {
+            T x = a.get(i), y = b.get(j);
+            int c = order.compare(x, y);
+            if (c == 0) {
+                if ((op & BOTH) != 0) out[k++] = x;
+                i++;
+                j++;
+            } else if (c < 0) {
+                int end = gallop ? lowerBound(a, i + 1, aTo, y, order) : i + 1;
+                if ((op & LEFT) != 0) k = copy(a, i, end, out, k);
+                i = end;
+            } else {
+                int end = gallop ? lowerBound(b, j + 1, bTo, x, order) : j + 1;
+                if ((op & RIGHT) != 0) k = copy(b, j, end, out, k);
+                j = end;
+            }
+        }
+        if ((op & LEFT) != 0) k = copy(a, i, aTo, out, k);
+        if ((op & RIGHT) != 0) k = copy(b, j, bTo, out, k);
+        return k;
+    }
+
+    private static <T> int copy(ArrayWrapper<T> from, int l, int r, Object[] out, int k) {
+        for (int i = l; i < r; i++) {
+            out[k++] = from.get(i);
+        }
+        return k;
+    }
+
+    /**
+     * First index of {@code [from, to)} whose element is not less than the key, found by galloping from
+     * {@code from}: {@code O(log d)} comparisons, {@code d} being the distance to the result.
+     */
+    static <T> int lowerBound(ArrayWrapper<T> w, int from, int to, T key, Comparator<? super T> order) {
+        int lo = from, step = 1;
+        while (lo < to && order.compare(w.get(lo), key) < 0) {
+            from = lo + 1;
+            lo = to - lo > step ? lo + step : to;
+            step <<= 1;
+        }
+        int hi = lo;
+        // result is in [from, hi]
+        while (from < hi) {
+            int mid = (from + hi) >>> 1;
+            if (order.compare(w.get(mid), key) < 0) {
+                from = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return from;
+    }
+}
@@ -0,0 +1,128 @@
+package ru.ifmo.ctddev.volhov.arrayset;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Differential checks of navigable sets against reference ones, usually views of a {@link TreeSet}, shared by the
+ * tests of the package. A failed check throws {@link AssertionError}.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+final class SetChecks {
+    private SetChecks() {
+    }
+
+    static void equal(Object actual, Object expected, String what) {
+        if (!Objects.equals(actual, expected)) {
+            throw new AssertionError(what + ": " + actual + ", expected " + expected);
+        }
+    }
+
+    /**
+     * Result of the call, or the class of the exception it threw.
+     */
+    static Object outcome(Supplier<?> call) {
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    /**
+     * Compares contents, both iteration orders, the direction of the comparator and navigation by every probe.
+     */
+    static <T> void sameSet(NavigableSet<T> actual, NavigableSet<T> expected, List<T> probes) {
+        equal(new ArrayList<>(actual), new ArrayList<>(expected), "elements");
+        equal(toList(actual.descendingIterator()), toList(expected.descendingIterator()), "descending iterator");
+        equal(new ArrayList<>(actual.descendingSet()), new ArrayList<>(expected.descendingSet()), "descending set");
+        equal(actual.size(), expected.size(), "size");
+        equal(actual.isEmpty(), expected.isEmpty(), "isEmpty");
+        equal(outcome(actual::first), outcome(expected::first), "first");
+        equal(outcome(actual::last), outcome(expected::last), "last");
+        equal(actual, expected, "equals");
+        equal(actual.hashCode(), expected.hashCode(), "hashCode");
+        equal(actual.comparator() == null, expected.comparator() == null, "natural order");
+        for (int i = 0; i < probes.size(); i++) {
+            T probe = probes.get(i);
+            equal(actual.contains(probe), expected.contains(probe), "contains " + probe);
+            equal(actual.lower(probe), expected.lower(probe), "lower " + probe);
+            equal(actual.floor(probe), expected.floor(probe), "floor " + probe);
+            equal(actual.ceiling(probe), expected.ceiling(probe), "ceiling " + probe);
+            equal(actual.higher(probe), expected.higher(probe), "higher " + probe);
+            if (i > 0 && actual.comparator() != null) {
+                T previous = probes.get(i - 1);
+                equal(Integer.signum(actual.comparator().compare(previous, probe)),
+                        Integer.signum(expected.comparator().compare(previous, probe)),
+                        "comparator of " + previous + " and " + probe);
+            }
+        }
+    }
+
+    /**
+     * Checks the sets, then takes the same random view of both and checks it recursively, {@code depth} levels
+     * down. Views of a {@link TreeSet} reject bounds outside of them, such views are not taken.
+     */
+    static <T> void sameViews(NavigableSet<T> actual, NavigableSet<T> expected, List<T> probes, Random random,
+                              int depth) {
+        sameSet(actual, expected, probes);
+        if (depth == 0) return;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            T from = probes.get(random.nextInt(probes.size()));
+            T to = probes.get(random.nextInt(probes.size()));
+            if (order(expected).compare(from, to) > 0) {
+                T t = from;
+                from = to;
+                to = t;
+            }
+            boolean fromInclusive = random.nextBoolean(), toInclusive = random.nextBoolean();
+            int kind = random.nextInt(4);
+            NavigableSet<T> expectedView;
+            try {
+                expectedView = view(expected, kind, from, fromInclusive, to, toInclusive);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            sameViews(view(actual, kind, from, fromInclusive, to, toInclusive), expectedView, probes, random,
+                    depth - 1);
+        }
+    }
+
+    private static <T> NavigableSet<T> view(NavigableSet<T> set, int kind, T from, boolean fromInclusive,
+                                            T to, boolean toInclusive) {
+        switch (kind) {
+            case 0:
+                return set.descendingSet();
+            case 1:
+                return set.subSet(from, fromInclusive, to, toInclusive);
+            case 2:
+                return set.headSet(to, toInclusive);
+            default:
+                return set.tailSet(from, fromInclusive);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Comparator<? super T> order(SortedSet<T> set) {
+        return set.comparator() != null ? set.comparator() : (a, b) -> ((Comparable<? super T>) a).compareTo(b);
+    }
+
+    static <T> List<T> toList(Iterator<T> iterator) {
+        List<T> list = new ArrayList<>();
+        iterator.forEachRemaining(list::add);
+        return list;
+    }
+
+    /**
+     * Integers from {@code from} to {@code to} inclusive.
+     */
+    static List<Integer> range(int from, int to) {
+        List<Integer> list = new ArrayList<>();
+        for (int i = from; i <= to; i++) {
+            list.add(i);
+        }
+        return list;
+    }
+}
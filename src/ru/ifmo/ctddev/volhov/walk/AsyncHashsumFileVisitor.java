@@ -0,0 +1,196 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.FileVisitResult;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * File visitor that reads files through {@link java.nio.channels.AsynchronousFileChannel} with a bounded number
+ * of reads in flight, while the tree is traversed by the calling thread.
+ * <p>
+ * The pipeline has three stages. Traversal takes a free read slot (a buffer and a hasher) for every visited file
+ * and waits if there is none, so no more than {@code inFlight} files are being read at once. Reads are issued
+ * on the I/O executor of the channels; every completed read is handed to the hashing executor, which feeds the
+ * buffer to the hasher and issues the next read of the same file. When the file ends, its slot is released and
+ * its digest goes to the {@link OrderedOutput}, so the output is the same as of the sequential walk.
+ * <p>
+ * Note that on platforms without native asynchronous file I/O (Linux included) the channel emulates it with
+ * blocking reads on the I/O executor, so the executor should have at least {@code inFlight} threads to keep
+ * the device queue that deep.
+ * <p>
+ * One visitor can be used for several roots in a row; {@link #finish} must be called after the last one.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class AsyncHashsumFileVisitor extends SimpleFileVisitor<Path> {
+    private static final Set<OpenOption> READ = Collections.singleton(StandardOpenOption.READ);
+
+    private final OrderedOutput out;
+    private final FileHasher hasher;
+    private final ExecutorService ioExecutor;
+    private final Executor hashExecutor;
+    private final BlockingQueue<Slot> slots;
+
+    private static class Slot {
+        final ByteBuffer buffer = ByteBuffer.allocate(HashEngine.BUFFER_SIZE);
+        final Hasher hasher;
+
+        Slot(HashAlgorithm algorithm) {
+            this.hasher = algorithm.create();
+        }
+    }
+
+    /**
+     * @param out          sink to put output lines to
+     * @param hasher       hasher of the files
+     * @param ioExecutor   executor of the asynchronous channels
+     * @param hashExecutor executor to hash read buffers on
+     * @param inFlight     maximum number of files being read at once
+     * @param window       maximum number of files hashed ahead of the output
+     */
+    public AsyncHashsumFileVisitor(DigestSink out, FileHasher hasher, ExecutorService ioExecutor,
+                                   Executor hashExecutor, int inFlight, int window) {
+        if (inFlight < 1) throw new IllegalArgumentException("Number of reads must be greater than zero");
+        this.out = new OrderedOutput(out, window);
+        this.hasher = hasher;
+        this.ioExecutor = ioExecutor;
+        this.hashExecutor = hashExecutor;
+        this.slots = new ArrayBlockingQueue<>(inFlight);
+        for (int i = 0; i < inFlight; i++) {
+            slots.add(new Slot(hasher.algorithm()));
+        }
+    }
+
+    @Override
+    public FileVisitResult visitFile(Path path, BasicFileAttributes basicFileAttributes) throws IOException {
+        byte[] cached = hasher.cached(path, basicFileAttributes);
+        if (cached != null) {
+            out.add(path, CompletableFuture.completedFuture(cached));
+            return FileVisitResult.CONTINUE;
+        }
+        Slot slot;
+        try {
+            slot = slots.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a read slot", e);
+        }
+        CompletableFuture<byte[]> digest = new CompletableFuture<>();
+        try {
+            AsynchronousFileChannel channel = AsynchronousFileChannel.open(path, READ, ioExecutor);
+            new FileRead(path, basicFileAttributes, channel, slot, digest).read();
+        } catch (IOException e) {
+            slots.add(slot);
+            System.err.println("Error while calculating hashsum: " + e.getMessage());
+            hasher.stats().failedHash();
+            digest.complete(hasher.failed());
+        }
+        out.add(path, digest);
+        return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFileFailed(Path path, IOException e) throws IOException {
+        HashsumFileVisitor.reportFailure(path, e, hasher.stats());
+        out.add(path, CompletableFuture.completedFuture(hasher.failed()));
+        return FileVisitResult.CONTINUE;
+    }
+
+    /**
+     * Waits for all pending files and writes their results.
+     *
+     * @throws IOException if output fails
+     */
+    public void finish() throws IOException {
+        out.finish();
+    }
+
+    private class FileRead implements CompletionHandler<Integer, Void> {
+        private final Path path;
+        private final BasicFileAttributes attributes;
+        private final AsynchronousFileChannel channel;
+        private final Slot slot;
+        private final CompletableFuture<byte[]> digest;
+        private final long start = System.nanoTime();
+        private long position = 0;
+
+        FileRead(Path path, BasicFileAttributes attributes, AsynchronousFileChannel channel, Slot slot,
+                 CompletableFuture<byte[]> digest) {
+            this.path = path;
+            this.attributes = attributes;
+            this.channel = channel;
+            this.slot = slot;
+            this.digest = digest;
+            slot.hasher.reset();
+        }
+
+        void read() {
+            try {
+                slot.buffer.clear();
+                channel.read(slot.buffer, position, null, this);
+            } catch (RuntimeException e) {
+                failed(e, null);
+            }
+        }
+
+        @Override
+        public void completed(Integer read, Void attachment) {
+            if (read == -1) {
+                byte[] result = new byte[slot.hasher.digestLength()];
+                slot.hasher.digest(result, 0);
+                hasher.stats().hashed(position, System.nanoTime() - start);
+                hasher.record(path, attributes, result);
+                done(result);
+                return;
+            }
+            position += read;
+            // exceptions of the hashing task would be swallowed by the executor, leaving the digest incomplete
+            try {
+                hashExecutor.execute(() -> {
+                    try {
+                        slot.buffer.flip();
+                        slot.hasher.update(slot.buffer);
+                    } catch (RuntimeException e) {
+                        failed(e, null);
+                        return;
+                    }
+                    read();
+                });
+            } catch (RuntimeException e) {
+                failed(e, null);
+            }
+        }
+
+        @Override
+        public void failed(Throwable e, Void attachment) {
+            System.err.println("Error while calculating hashsum: " + path + ": " + e.getMessage());
+            hasher.stats().failedHash();
+            done(hasher.failed());
+        }
+
+        private void done(byte[] result) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Couldn't close " + path + ": " + e.getMessage());
+            }
+            slots.add(slot);
+            digest.complete(result);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * Position of a walk, saved periodically so that a killed walk can be resumed.
+ * <p>
+ * A checkpoint records the number of files whose lines were written, the size of the output at that moment and
+ * the path of the last written file, together with the input file and the hash format of the walk. The output
+ * is forced to disk before the checkpoint is written, and the checkpoint itself is replaced atomically, so it never
+ * points past the durable output.
+ * <p>
+ * A resumed walk truncates the output to the recorded size, traverses the same roots without hashing the first
+ * {@link #lines} files (see {@link #skip}), checks that the last of them is the recorded path and appends
+ * the rest. Traversal order of an unchanged tree is stable, so the output has neither duplicates nor gaps.
+ * If files were added or removed before the checkpoint position, the check fails and the walk has to be
+ * started over.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class Checkpoint {
+    /**
+     * Thrown when the walk can't be resumed from the checkpoint.
+     */
+    public static class MismatchException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public MismatchException(String message) {
+            super(message);
+        }
+    }
+
+    public final String input;
+    public final String format;
+    public final long lines;
+    public final long offset;
+    public final String lastPath;
+    private long skipped = 0;
+
+    /**
+     * @param input    absolute path of the input file
+     * @param format   name of the hash format, see {@link FileHasher#format}
+     * @param lines    number of files written
+     * @param offset   size of the output
+     * @param lastPath path of the last file written, empty if there is none
+     */
+    public Checkpoint(String input, String format, long lines, long offset, String lastPath) {
+        this.input = input;
+        this.format = format;
+        this.lines = lines;
+        this.offset = offset;
+        this.lastPath = lastPath;
+    }
+
+    /**
+     * Loads the checkpoint.
+     *
+     * @param file checkpoint file
+     *
+     * @return checkpoint or {@code null} if there is no checkpoint file
+     * @throws IOException if checkpoint exists, but can't be read
+     */
+    public static Checkpoint load(Path file) throws IOException {
+        if (!Files.exists(file)) return null;
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        try {
+            return new Checkpoint(property(properties, "input"), property(properties, "format"),
+                    Long.parseLong(property(properties, "lines")), Long.parseLong(property(properties, "offset")),
+                    property(properties, "last"));
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed checkpoint " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static String property(Properties properties, String key) throws IOException {
+        String value = properties.getProperty(key);
+        if (value == null) throw new IOException("Checkpoint has no " + key);
+        return value;
+    }
+
+    /**
+     * Durably and atomically replaces the checkpoint file with this checkpoint.
+     *
+     * @param file checkpoint file
+     *
+     * @throws IOException if checkpoint can't be written
+     */
+    public void save(Path file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("input", input);
+        properties.setProperty("format", format);
+        properties.setProperty("lines", Long.toString(lines));
+        properties.setProperty("offset", Long.toString(offset));
+        properties.setProperty("last", lastPath);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        properties.store(bytes, "RecursiveWalk checkpoint");
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Checks that the checkpoint belongs to the walk and the output wasn't cut below the recorded size.
+     *
+     * @param input  absolute path of the input file
+     * @param format name of the hash format
+     * @param output output channel
+     *
+     * @throws IOException if walk can't be resumed
+     */
+    public void verify(String input, String format, FileChannel output) throws IOException {
+        if (!this.input.equals(input)) {
+            throw new MismatchException("checkpoint is for input " + this.input);
+        }
+        if (!this.format.equals(format)) {
+            throw new MismatchException("checkpoint is for " + this.format + " hashes");
+        }
+        if (output.size() < offset) {
+            throw new MismatchException("output is shorter than recorded " + offset + " bytes");
+        }
+        if (lines > 0) {
+            byte[] tail = (" " + lastPath + "\n").getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.allocate(tail.length);
+            if (offset < tail.length || output.read(buffer, offset - tail.length) != tail.length) {
+                throw new MismatchException("output doesn't end with " + lastPath + " at " + offset);
+            }
+            buffer.flip();
+            if (!ByteBuffer.wrap(tail).equals(buffer)) {
+                throw new MismatchException("output doesn't end with " + lastPath + " at " + offset);
+            }
+        }
+    }
+
+    /**
+     * Called for every visited file of the resumed walk, tells if the file was already written.
+     *
+     * @param path visited file
+     *
+     * @return true if the file must be skipped
+     * @throws MismatchException if the last written file is not where it was
+     */
+    public boolean skip(Path path) throws MismatchException {
+        if (skipped == lines) return false;
+        if (++skipped == lines && !path.toString().equals(lastPath)) {
+            throw new MismatchException("file " + lines + " is " + path + ", not " + lastPath
+                    + "; the tree was changed, start the walk over");
+        }
+        return true;
+    }
+
+    /**
+     * Checks that the resumed walk has visited all the files written before the checkpoint.
+     *
+     * @throws MismatchException if there were fewer files
+     */
+    public void finish() throws MismatchException {
+        if (skipped < lines) {
+            throw new MismatchException("only " + skipped + " of " + lines + " written files were found; "
+                    + "the tree was changed, start the walk over");
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Output sink that saves a {@link Checkpoint} of the walk every few seconds, and resumes the output
+ * of a killed walk from its last checkpoint.
+ * <p>
+ * Checkpoints are taken only between lines, from the thread writing them, so the recorded number of lines always
+ * matches the recorded output size.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class CheckpointWriter extends HashsumWriter {
+    private static final int CHECK_MASK = (1 << 10) - 1;
+
+    private final FileChannel channel;
+    private final Path file;
+    private final String input;
+    private final String format;
+    private final Checkpoint resumed;
+    private final long base;
+    private final long interval;
+    private long lines;
+    private Path last;
+    private long lastCheckpoint = System.nanoTime();
+
+    private CheckpointWriter(FileChannel channel, Path file, String input, String format, Checkpoint resumed,
+                             long interval) {
+        super(Channels.newOutputStream(channel));
+        this.channel = channel;
+        this.file = file;
+        this.input = input;
+        this.format = format;
+        this.resumed = resumed;
+        this.base = resumed == null ? 0 : resumed.offset;
+        this.lines = resumed == null ? 0 : resumed.lines;
+        this.interval = TimeUnit.SECONDS.toNanos(interval);
+    }
+
+    /**
+     * Opens the output. If the checkpoint file exists, the output is truncated to the recorded size,
+     * otherwise it is truncated to zero.
+     *
+     * @param output   output file
+     * @param file     checkpoint file
+     * @param input    absolute path of the input file
+     * @param format   name of the hash format
+     * @param interval minimum time between checkpoints in seconds
+     *
+     * @return sink appending to the output
+     * @throws IOException if output can't be opened or doesn't match the checkpoint
+     */
+    public static CheckpointWriter open(Path output, Path file, String input, String format, long interval)
+            throws IOException {
+        Checkpoint resumed = Checkpoint.load(file);
+        FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (resumed != null) {
+                resumed.verify(input, format, channel);
+            }
+            channel.truncate(resumed == null ? 0 : resumed.offset);
+            channel.position(channel.size());
+            return new CheckpointWriter(channel, file, input, format, resumed, interval);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return checkpoint the output was resumed from, or {@code null} for a fresh walk
+     */
+    public Checkpoint resumed() {
+        return resumed;
+    }
+
+    @Override
+    public void write(byte[] digest, Path path) throws IOException {
+        super.write(digest, path);
+        lines++;
+        last = path;
+        if ((lines & CHECK_MASK) == 0
+                && System.nanoTime() - lastCheckpoint >= interval) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Forces the output to disk and saves the checkpoint.
+     *
+     * @throws IOException if output or checkpoint can't be written
+     */
+    public void checkpoint() throws IOException {
+        flush();
+        channel.force(false);
+        String lastPath = last != null ? last.toString() : resumed != null ? resumed.lastPath : "";
+        new Checkpoint(input, format, lines, base + position(), lastPath).save(file);
+        lastCheckpoint = System.nanoTime();
+    }
+
+    /**
+     * Removes the checkpoint after the walk is complete.
+     *
+     * @throws IOException if checkpoint can't be removed
+     */
+    public void complete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,104 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * CRC-32C (Castagnoli) checksum.
+ * <p>
+ * On Java 9 and later the computation is delegated to {@code java.util.zip.CRC32C}, which the JIT compiles to
+ * the SSE 4.2 / ARMv8 CRC instructions. On older platforms a table-driven implementation (slicing by 8) is used,
+ * both produce the same values.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class Crc32cHasher implements Hasher {
+    private static final int POLYNOMIAL = 0x82f63b78; // reflected 0x1edc6f41
+    private static final int[][] TABLES = new int[8][256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int j = 0; j < 8; j++) {
+                crc = (crc >>> 1) ^ ((crc & 1) == 0 ? 0 : POLYNOMIAL);
+            }
+            TABLES[0][i] = crc;
+        }
+        for (int i = 0; i < 256; i++) {
+            for (int t = 1; t < 8; t++) {
+                TABLES[t][i] = (TABLES[t - 1][i] >>> 8) ^ TABLES[0][TABLES[t - 1][i] & 0xff];
+            }
+        }
+    }
+
+    private final Checksum platform = platformChecksum();
+    private final byte[] chunk = new byte[1 << 13];
+    private int crc = 0xffffffff;
+
+    private static Checksum platformChecksum() {
+        try {
+            return (Checksum) Class.forName("java.util.zip.CRC32C").getConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void reset() {
+        if (platform != null) {
+            platform.reset();
+        }
+        crc = 0xffffffff;
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+        } else {
+            while (buffer.hasRemaining()) {
+                int length = Math.min(chunk.length, buffer.remaining());
+                buffer.get(chunk, 0, length);
+                update(chunk, 0, length);
+            }
+        }
+    }
+
+    private void update(byte[] array, int offset, int length) {
+        if (platform != null) {
+            platform.update(array, offset, length);
+            return;
+        }
+        int c = crc;
+        int i = offset;
+        int end = offset + length;
+        for (; i + 8 <= end; i += 8) {
+            c ^= (array[i] & 0xff) | (array[i + 1] & 0xff) << 8
+                    | (array[i + 2] & 0xff) << 16 | (array[i + 3] & 0xff) << 24;
+            c = TABLES[7][c & 0xff] ^ TABLES[6][(c >>> 8) & 0xff]
+                    ^ TABLES[5][(c >>> 16) & 0xff] ^ TABLES[4][c >>> 24]
+                    ^ TABLES[3][array[i + 4] & 0xff] ^ TABLES[2][array[i + 5] & 0xff]
+                    ^ TABLES[1][array[i + 6] & 0xff] ^ TABLES[0][array[i + 7] & 0xff];
+        }
+        for (; i < end; i++) {
+            c = (c >>> 8) ^ TABLES[0][(c ^ array[i]) & 0xff];
+        }
+        crc = c;
+    }
+
+    @Override
+    public int digestLength() {
+        return 4;
+    }
+
+    @Override
+    public void digest(byte[] out, int offset) {
+        int value = platform != null ? (int) platform.getValue() : ~crc;
+        for (int i = 0; i < 4; i++) {
+            out[offset + i] = (byte) (value >>> (24 - 8 * i));
+        }
+        reset();
+    }
+}
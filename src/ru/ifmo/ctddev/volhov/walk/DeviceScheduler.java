@@ -0,0 +1,252 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Walks several roots at once, scheduling them by the device ({@link java.nio.file.FileStore}) they live on.
+ * <p>
+ * Roots on the same device are walked one after another by a single traversal thread, and files of that device
+ * are hashed by its own pool: rotational disks get {@code rotationalLimit} threads, so parallel reads don't turn
+ * into seeks, other devices get {@code threads} threads. Different devices are walked concurrently. Every root
+ * is written to its own temporary file next to the output file, which is appended to the output when all roots
+ * before it are done, so the output keeps the order of roots. Temporary files are deleted when the walk ends,
+ * even if it fails.
+ * <p>
+ * Overlapping roots are walked once: a root inside an earlier one (after resolving symbolic links) is skipped,
+ * and earlier roots found inside a later one are skipped during its walk. A warning is printed in both cases.
+ * <p>
+ * A device is considered rotational if Linux reports it so in {@code /sys/class/block/<device>/queue/rotational};
+ * devices that can't be identified are treated as solid state.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class DeviceScheduler {
+    private final FileHasher hasher;
+    private final int threads;
+    private final int rotationalLimit;
+    private final int window;
+
+    private static class Root {
+        final Path path;
+        final Path real;
+        final FileStore store;
+        final Set<Path> excluded = new HashSet<>();
+        boolean skipped = false;
+        Path output;
+
+        Root(Path path) {
+            this.path = path;
+            Path real = null;
+            FileStore store = null;
+            try {
+                real = path.toRealPath();
+                store = Files.getFileStore(real);
+            } catch (IOException ignored) {
+                // missing roots are reported by the walk itself
+            }
+            this.real = real;
+            this.store = store;
+        }
+    }
+
+    /**
+     * @param hasher          hasher of the files
+     * @param threads         number of hashing threads of a solid state device
+     * @param rotationalLimit number of hashing threads of a rotational device
+     * @param window          maximum number of files hashed ahead of the output of one device
+     */
+    public DeviceScheduler(FileHasher hasher, int threads, int rotationalLimit, int window) {
+        if (threads < 1 || rotationalLimit < 1) {
+            throw new IllegalArgumentException("Number of threads must be greater than zero");
+        }
+        this.hasher = hasher;
+        this.threads = threads;
+        this.rotationalLimit = rotationalLimit;
+        this.window = window;
+    }
+
+    /**
+     * Walks the roots and writes their output in the order of the list.
+     *
+     * @param paths  roots to walk
+     * @param output path of the output file, temporary files are created in its directory
+     * @param out    sink to write output to
+     *
+     * @throws IOException if output fails
+     */
+    public void walk(List<Path> paths, Path output, HashsumWriter out) throws IOException {
+        List<Root> roots = new ArrayList<>();
+        for (Path path : paths) {
+            roots.add(new Root(path));
+        }
+        findOverlaps(roots);
+
+        Map<FileStore, List<Root>> devices = new LinkedHashMap<>();
+        for (Root root : roots) {
+            if (!root.skipped) {
+                devices.computeIfAbsent(root.store, store -> new ArrayList<>()).add(root);
+            }
+        }
+        Map<Root, CompletableFuture<Void>> done = new HashMap<>();
+        for (Root root : roots) {
+            if (!root.skipped) {
+                done.put(root, new CompletableFuture<>());
+            }
+        }
+        ExecutorService traversals = Executors.newFixedThreadPool(Math.max(1, devices.size()));
+        try {
+            for (Map.Entry<FileStore, List<Root>> device : devices.entrySet()) {
+                int limit = isRotational(device.getKey()) ? rotationalLimit : threads;
+                traversals.execute(() -> walkDevice(device.getValue(), limit, output, done));
+            }
+            for (Root root : roots) {
+                if (root.skipped) continue;
+                try {
+                    done.get(root).join();
+                } catch (CompletionException e) {
+                    throw new IOException("Walk of " + root.path + " failed", e.getCause());
+                }
+                out.copy(root.output);
+            }
+        } finally {
+            traversals.shutdownNow();
+            // Output of a root belongs to the walk once its future is completed normally, and to its traversal
+            // until then; cancelling the rest stops traversals from starting them and makes them delete their parts
+            for (Root root : roots) {
+                CompletableFuture<Void> future = done.get(root);
+                if (future != null && !future.cancel(false) && !future.isCompletedExceptionally()) {
+                    Files.deleteIfExists(root.output);
+                }
+            }
+        }
+    }
+
+    private void walkDevice(List<Root> roots, int limit, Path output, Map<Root, CompletableFuture<Void>> done) {
+        Path directory = output.toAbsolutePath().getParent();
+        String prefix = "." + output.getFileName() + ".";
+        ExecutorService pool = Executors.newFixedThreadPool(limit);
+        try {
+            for (Root root : roots) {
+                CompletableFuture<Void> future = done.get(root);
+                if (future.isDone()) continue;
+                Path file = null;
+                try {
+                    file = Files.createTempFile(directory, prefix, ".part");
+                    try (HashsumWriter part = new HashsumWriter(Files.newOutputStream(file))) {
+                        OrderedOutput ordered = new OrderedOutput(part, window);
+                        Files.walkFileTree(root.path, new StatsFileVisitor(new ExcludingVisitor(root,
+                                new ParallelHashsumFileVisitor(ordered, pool, hasher)), hasher.stats()));
+                        ordered.finish();
+                    }
+                    root.output = file;
+                    if (future.complete(null)) {
+                        file = null;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    if (file != null) {
+                        deleteQuietly(file);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Couldn't delete " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static void findOverlaps(List<Root> roots) {
+        for (int i = 0; i < roots.size(); i++) {
+            Root root = roots.get(i);
+            if (root.real == null) continue;
+            for (int j = 0; j < i; j++) {
+                Root earlier = roots.get(j);
+                if (earlier.real == null || earlier.skipped) continue;
+                if (root.real.startsWith(earlier.real)) {
+                    System.err.println("Skipping " + root.path + ": already walked as part of " + earlier.path);
+                    root.skipped = true;
+                    break;
+                } else if (earlier.real.startsWith(root.real)) {
+                    System.err.println("Skipping " + earlier.path + " inside " + root.path + ": already walked");
+                    root.excluded.add(earlier.real);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if the device of the store is a rotational disk.
+     *
+     * @param store file store to check, may be {@code null}
+     *
+     * @return true if the device is known to be rotational
+     */
+    public static boolean isRotational(FileStore store) {
+        if (store == null) return false;
+        String device = store.name().substring(store.name().lastIndexOf('/') + 1);
+        if (device.isEmpty()) return false;
+        Path block = Paths.get("/sys/class/block", device);
+        for (Path flag : new Path[]{block.resolve("queue/rotational"), block.resolve("../queue/rotational")}) {
+            try {
+                return Files.readAllLines(flag).get(0).trim().equals("1");
+            } catch (IOException | IndexOutOfBoundsException | InvalidPathException ignored) {
+                // try the whole disk of a partition
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Delegates to the visitor, skipping subtrees of the root that were already walked as other roots.
+     */
+    private static class ExcludingVisitor extends SimpleFileVisitor<Path> {
+        private final Root root;
+        private final ParallelHashsumFileVisitor visitor;
+
+        ExcludingVisitor(Root root, ParallelHashsumFileVisitor visitor) {
+            this.root = root;
+            this.visitor = visitor;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+            if (excluded(dir)) {
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+            if (excluded(file)) {
+                return FileVisitResult.CONTINUE;
+            }
+            return visitor.visitFile(file, attrs);
+        }
+
+        private boolean excluded(Path path) {
+            return !root.excluded.isEmpty() && root.excluded.contains(root.real.resolve(root.path.relativize(path)));
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+            return visitor.visitFileFailed(file, e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * {@link Hasher} over a {@link java.security.MessageDigest} of the platform.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class DigestHasher implements Hasher {
+    private final MessageDigest digest;
+
+    /**
+     * @param algorithm standard name of the digest algorithm
+     *
+     * @throws IllegalArgumentException if the platform doesn't provide this algorithm
+     */
+    public DigestHasher(String algorithm) {
+        try {
+            this.digest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Digest " + algorithm + " is not available", e);
+        }
+    }
+
+    @Override
+    public void reset() {
+        digest.reset();
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        digest.update(buffer);
+    }
+
+    @Override
+    public int digestLength() {
+        return digest.getDigestLength();
+    }
+
+    @Override
+    public void digest(byte[] out, int offset) {
+        try {
+            digest.digest(out, offset, digest.getDigestLength());
+        } catch (DigestException e) {
+            throw new IllegalArgumentException("Digest doesn't fit into the array", e);
+        }
+    }
+}
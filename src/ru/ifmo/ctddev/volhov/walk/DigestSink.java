@@ -0,0 +1,24 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Sink of digests of visited files: the text output of the walk, {@link HashsumWriter}, or a binary snapshot,
+ * {@link SnapshotWriter}.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public interface DigestSink extends Closeable {
+    /**
+     * Records the digest of one file.
+     *
+     * @param digest digest of the file
+     * @param path   path to the file
+     *
+     * @throws IOException if output fails
+     */
+    void write(byte[] digest, Path path) throws IOException;
+}
@@ -0,0 +1,169 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Finds groups of files with equal contents among the walked trees, reading as little as possible.
+ * <p>
+ * Files are grouped by size first, files of unique size are never opened. Files of the same size are then grouped
+ * by the digest of their first {@link #HEAD_SIZE} bytes, and only the files that still collide are hashed in full.
+ * For files not longer than {@link #HEAD_SIZE} the head digest is already the digest of the whole file.
+ * <p>
+ * Each group is written as lines of {@code "hex-digest path"} in visit order, groups are separated by an empty line
+ * and go from the largest files to the smallest ones. Files are compared by digest only, so collision resistant
+ * algorithms ({@link HashAlgorithm#SHA256}, {@link HashAlgorithm#XXHASH64}) should be preferred for this mode.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class DuplicateFinder {
+    /**
+     * Number of leading bytes hashed on the second pass.
+     */
+    public static final int HEAD_SIZE = 1 << 16;
+
+    private final FileHasher hasher;
+    private final ForkJoinPool pool;
+    private final Map<Long, List<Candidate>> bySize = new HashMap<>();
+    private int visited = 0;
+
+    private static class Candidate {
+        final Path path;
+        final BasicFileAttributes attributes;
+        final int order;
+        byte[] digest;
+
+        Candidate(Path path, BasicFileAttributes attributes, int order) {
+            this.path = path;
+            this.attributes = attributes;
+            this.order = order;
+        }
+    }
+
+    /**
+     * @param hasher hasher of the files
+     * @param pool   pool to hash files on, or {@code null} to hash them in the calling thread
+     */
+    public DuplicateFinder(FileHasher hasher, ForkJoinPool pool) {
+        this.hasher = hasher;
+        this.pool = pool;
+    }
+
+    /**
+     * Collects regular files of the tree. Nothing is read at this point.
+     *
+     * @param root root of the tree
+     *
+     * @throws IOException if visitor fails
+     */
+    public void walk(Path root) throws IOException {
+        Files.walkFileTree(root, new StatsFileVisitor(new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) throws IOException {
+                if (attributes.isRegularFile()) {
+                    bySize.computeIfAbsent(attributes.size(), size -> new ArrayList<>())
+                            .add(new Candidate(path, attributes, visited++));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path path, IOException e) throws IOException {
+                HashsumFileVisitor.reportFailure(path, e, hasher.stats());
+                return FileVisitResult.CONTINUE;
+            }
+        }, hasher.stats()));
+    }
+
+    /**
+     * Hashes candidates and writes groups of duplicates.
+     *
+     * @param out sink to write groups to
+     *
+     * @throws IOException if output fails
+     */
+    public void write(HashsumWriter out) throws IOException {
+        List<List<Candidate>> groups = new ArrayList<>();
+        for (List<Candidate> group : bySize.values()) {
+            if (group.size() > 1) {
+                groups.add(group);
+            }
+        }
+        bySize.clear();
+        groups = split(groups, c -> HashEngine.hashPrefix(c.path, hasher.algorithm(), HEAD_SIZE));
+        List<List<Candidate>> complete = new ArrayList<>();
+        List<List<Candidate>> colliding = new ArrayList<>();
+        for (List<Candidate> group : groups) {
+            (size(group) <= HEAD_SIZE ? complete : colliding).add(group);
+        }
+        complete.addAll(split(colliding, c -> hasher.hash(c.path, c.attributes)));
+
+        complete.sort(Comparator.comparingLong(DuplicateFinder::size).reversed()
+                .thenComparingInt(group -> group.get(0).order));
+        boolean first = true;
+        for (List<Candidate> group : complete) {
+            if (!first) {
+                out.writeChars("\n");
+            }
+            first = false;
+            for (Candidate candidate : group) {
+                out.write(candidate.digest, candidate.path);
+            }
+        }
+    }
+
+    private static long size(List<Candidate> group) {
+        return group.get(0).attributes.size();
+    }
+
+    private interface Digest {
+        byte[] apply(Candidate candidate) throws IOException;
+    }
+
+    /**
+     * Hashes every candidate of the groups and splits each group by the digest, dropping groups of one file.
+     */
+    private List<List<Candidate>> split(List<List<Candidate>> groups, Digest digest) {
+        List<Candidate> candidates = new ArrayList<>();
+        groups.forEach(candidates::addAll);
+        Function<Candidate, byte[]> safeDigest = c -> {
+            try {
+                return digest.apply(c);
+            } catch (IOException e) {
+                System.err.println("Error while calculating hashsum: " + e.getMessage());
+                hasher.stats().failedHash();
+                return null;
+            }
+        };
+        if (pool == null) {
+            candidates.forEach(c -> c.digest = safeDigest.apply(c));
+        } else {
+            pool.submit(() -> candidates.parallelStream().forEach(c -> c.digest = safeDigest.apply(c))).join();
+        }
+
+        List<List<Candidate>> result = new ArrayList<>();
+        for (List<Candidate> group : groups) {
+            Map<ByteBuffer, List<Candidate>> byDigest = new LinkedHashMap<>();
+            for (Candidate candidate : group) {
+                if (candidate.digest != null) {
+                    byDigest.computeIfAbsent(ByteBuffer.wrap(candidate.digest), d -> new ArrayList<>()).add(candidate);
+                }
+            }
+            for (List<Candidate> split : byDigest.values()) {
+                if (split.size() > 1) {
+                    result.add(split);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,139 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Hashes files of the walk with the selected algorithm, plainly or as Merkle trees of chunks,
+ * consulting the hash cache if there is one.
+ * Instances are immutable and can be shared between hashing threads.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class FileHasher {
+    private final HashAlgorithm algorithm;
+    private final MerkleHasher merkle;
+    private final HashCache cache;
+    private final WalkStats stats;
+    private final byte[] failed;
+
+    /**
+     * @param algorithm hash algorithm
+     * @param cache     index of previously computed hashes of the same algorithm,
+     *                  or {@code null} to hash every file
+     */
+    public FileHasher(HashAlgorithm algorithm, HashCache cache) {
+        this(algorithm, cache, new WalkStats());
+    }
+
+    /**
+     * @param algorithm hash algorithm
+     * @param cache     index of previously computed hashes of the same algorithm,
+     *                  or {@code null} to hash every file
+     * @param stats     statistics to record hashed files to
+     */
+    public FileHasher(HashAlgorithm algorithm, HashCache cache, WalkStats stats) {
+        this(algorithm, null, cache, stats);
+    }
+
+    /**
+     * @param algorithm hash algorithm
+     * @param merkle    Merkle tree hasher of the same algorithm, or {@code null} to hash files plainly
+     * @param cache     index of previously computed hashes of the same format,
+     *                  or {@code null} to hash every file
+     * @param stats     statistics to record hashed files to
+     */
+    public FileHasher(HashAlgorithm algorithm, MerkleHasher merkle, HashCache cache, WalkStats stats) {
+        if (merkle != null && merkle.algorithm() != algorithm) {
+            throw new IllegalArgumentException("Merkle hasher uses " + merkle.algorithm().algorithmName);
+        }
+        if (cache != null && !cache.format().equals(format(algorithm, merkle))) {
+            throw new IllegalArgumentException("Cache holds " + cache.format() + " hashes");
+        }
+        this.algorithm = algorithm;
+        this.merkle = merkle;
+        this.cache = cache;
+        this.stats = stats;
+        this.failed = new byte[algorithm.create().digestLength()];
+    }
+
+    public HashAlgorithm algorithm() {
+        return algorithm;
+    }
+
+    public WalkStats stats() {
+        return stats;
+    }
+
+    /**
+     * @return name of the format of digests, the algorithm name for plain hashes
+     */
+    public String format() {
+        return format(algorithm, merkle);
+    }
+
+    /**
+     * Returns name of the format of digests computed with the given algorithm and Merkle hasher.
+     */
+    public static String format(HashAlgorithm algorithm, MerkleHasher merkle) {
+        return merkle == null ? algorithm.algorithmName : merkle.formatName();
+    }
+
+    /**
+     * Computes digest of the file.
+     *
+     * @param path       file to hash
+     * @param attributes attributes of the file, read before hashing
+     *
+     * @return digest of the file
+     * @throws IOException if file can't be read
+     */
+    public byte[] hash(Path path, BasicFileAttributes attributes) throws IOException {
+        byte[] digest = cached(path, attributes);
+        if (digest == null) {
+            long start = System.nanoTime();
+            digest = merkle == null ? HashEngine.hash(path, algorithm) : merkle.hash(path);
+            stats.hashed(attributes.size(), System.nanoTime() - start);
+            record(path, attributes, digest);
+        }
+        return digest;
+    }
+
+    /**
+     * Returns the cached digest of the file, if there is a cache and the file was not changed.
+     *
+     * @param path       file to look up
+     * @param attributes attributes of the file
+     *
+     * @return digest of the file or {@code null} if it must be hashed
+     */
+    public byte[] cached(Path path, BasicFileAttributes attributes) {
+        byte[] digest = cache == null ? null : cache.lookup(path, attributes);
+        if (digest != null) {
+            stats.cached();
+        }
+        return digest;
+    }
+
+    /**
+     * Records the digest of the file computed outside of this hasher, if there is a cache.
+     *
+     * @param path       hashed file
+     * @param attributes attributes of the file, read before hashing
+     * @param digest     digest of the file
+     */
+    public void record(Path path, BasicFileAttributes attributes, byte[] digest) {
+        if (cache != null) {
+            cache.record(path, attributes, digest);
+        }
+    }
+
+    /**
+     * @return digest written for files that can't be read, the array must not be modified
+     */
+    public byte[] failed() {
+        return failed;
+    }
+}
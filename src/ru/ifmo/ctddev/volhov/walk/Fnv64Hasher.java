@@ -0,0 +1,54 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 64-bit FNV-1a hash.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class Fnv64Hasher implements Hasher {
+    public static final long OFFSET = 0xcbf29ce484222325L;
+    public static final long PRIME = 0x100000001b3L;
+
+    private long hash = OFFSET;
+
+    @Override
+    public void reset() {
+        hash = OFFSET;
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        long h = hash;
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            for (int i = buffer.arrayOffset() + buffer.position(), end = buffer.arrayOffset() + buffer.limit();
+                 i < end; i++) {
+                h ^= array[i] & 0xff;
+                h *= PRIME;
+            }
+            buffer.position(buffer.limit());
+        } else {
+            while (buffer.hasRemaining()) {
+                h ^= buffer.get() & 0xff;
+                h *= PRIME;
+            }
+        }
+        hash = h;
+    }
+
+    @Override
+    public int digestLength() {
+        return 8;
+    }
+
+    @Override
+    public void digest(byte[] out, int offset) {
+        for (int i = 0; i < 8; i++) {
+            out[offset + i] = (byte) (hash >>> (56 - 8 * i));
+        }
+        reset();
+    }
+}
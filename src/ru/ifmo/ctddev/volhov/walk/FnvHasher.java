@@ -0,0 +1,81 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 32-bit FNV hash, either FNV-1 (multiply, then xor) or FNV-1a (xor, then multiply).
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class FnvHasher implements Hasher {
+    public static final int OFFSET = 0x811c9dc5;
+    public static final int PRIME = 0x01000193;
+
+    private final boolean alternate;
+    private int hash = OFFSET;
+
+    /**
+     * @param alternate true for FNV-1a, false for FNV-1
+     */
+    public FnvHasher(boolean alternate) {
+        this.alternate = alternate;
+    }
+
+    @Override
+    public void reset() {
+        hash = OFFSET;
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset() + buffer.position();
+            hash = alternate
+                    ? update1a(hash, buffer.array(), offset, buffer.remaining())
+                    : update1(hash, buffer.array(), offset, buffer.remaining());
+            buffer.position(buffer.limit());
+        } else {
+            int h = hash;
+            while (buffer.hasRemaining()) {
+                if (alternate) {
+                    h ^= buffer.get() & 0xff;
+                    h *= PRIME;
+                } else {
+                    h *= PRIME;
+                    h ^= buffer.get() & 0xff;
+                }
+            }
+            hash = h;
+        }
+    }
+
+    private static int update1(int hash, byte[] array, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash *= PRIME;
+            hash ^= array[i] & 0xff;
+        }
+        return hash;
+    }
+
+    private static int update1a(int hash, byte[] array, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash ^= array[i] & 0xff;
+            hash *= PRIME;
+        }
+        return hash;
+    }
+
+    @Override
+    public int digestLength() {
+        return 4;
+    }
+
+    @Override
+    public void digest(byte[] out, int offset) {
+        for (int i = 0; i < 4; i++) {
+            out[offset + i] = (byte) (hash >>> (24 - 8 * i));
+        }
+        reset();
+    }
+}
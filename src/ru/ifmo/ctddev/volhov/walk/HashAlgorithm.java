@@ -0,0 +1,53 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.util.function.Supplier;
+
+/**
+ * Hash algorithms available for the walk. The name of algorithm is used to select it from the command line
+ * and to label persisted hashes.
+ * <p>
+ * {@link #FNV32} is the historical format of the walk output: 32-bit FNV with multiplication before xor
+ * (FNV-1). The rest are sorted roughly by throughput: {@link #CRC32C} and {@link #XXHASH64} are the fastest
+ * ones, {@link #SHA256} is the only one that resists deliberate collisions.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public enum HashAlgorithm {
+    FNV32("fnv32", () -> new FnvHasher(false)),
+    FNV1A32("fnv1a32", () -> new FnvHasher(true)),
+    FNV1A64("fnv1a64", Fnv64Hasher::new),
+    CRC32C("crc32c", Crc32cHasher::new),
+    XXHASH64("xxhash64", XxHash64Hasher::new),
+    SHA256("sha256", () -> new DigestHasher("SHA-256"));
+
+    public final String algorithmName;
+    private final Supplier<Hasher> factory;
+
+    HashAlgorithm(String algorithmName, Supplier<Hasher> factory) {
+        this.algorithmName = algorithmName;
+        this.factory = factory;
+    }
+
+    /**
+     * @return new hasher of this algorithm
+     */
+    public Hasher create() {
+        return factory.get();
+    }
+
+    /**
+     * Finds algorithm by its name.
+     *
+     * @param name name of the algorithm
+     *
+     * @return algorithm with the given name
+     * @throws IllegalArgumentException if there is no such algorithm
+     */
+    public static HashAlgorithm forName(String name) {
+        for (HashAlgorithm algorithm : values()) {
+            if (algorithm.algorithmName.equals(name)) return algorithm;
+        }
+        throw new IllegalArgumentException("Unknown hash algorithm: " + name);
+    }
+}
@@ -0,0 +1,197 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent index of file hashes, that lets repeated walks skip files that were not changed since the last run.
+ * <p>
+ * A file is considered unchanged if its absolute path, size, modification time and file key (inode on unix
+ * systems) are equal to the ones recorded. The index is kept in a binary sidecar file: a header of magic,
+ * version, hash format name and number of entries, followed by entries of
+ * {@code (path length, UTF-8 path, size, mtime in nanoseconds, file key length, file key, digest)}.
+ * An index of another hash format is ignored.
+ * The file is memory-mapped on load and rewritten atomically by {@link #save}, which stores only the files
+ * visited during the current run, so removed files drop out of the index.
+ * <p>
+ * Instances are safe to use from several hashing threads at once.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class HashCache {
+    private static final int MAGIC = 0x57484331; // "WHC1"
+    private static final int VERSION = 2;
+
+    private final Path file;
+    private final String format;
+    private final boolean rehash;
+    private final Map<String, Entry> previous;
+    private final ConcurrentHashMap<String, Entry> current = new ConcurrentHashMap<>();
+
+    private static class Entry {
+        final long size;
+        final long mtime;
+        final String fileKey;
+        final byte[] hash;
+
+        Entry(long size, long mtime, String fileKey, byte[] hash) {
+            this.size = size;
+            this.mtime = mtime;
+            this.fileKey = fileKey;
+            this.hash = hash;
+        }
+
+        Entry(BasicFileAttributes attributes, byte[] hash) {
+            this(attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                    attributes.fileKey() == null ? "" : attributes.fileKey().toString(), hash);
+        }
+
+        boolean sameFile(Entry other) {
+            return size == other.size && mtime == other.mtime && fileKey.equals(other.fileKey);
+        }
+    }
+
+    private HashCache(Path file, String format, boolean rehash, Map<String, Entry> previous) {
+        this.file = file;
+        this.format = format;
+        this.rehash = rehash;
+        this.previous = previous;
+    }
+
+    /**
+     * Loads the index from the given file. Missing or corrupted index is treated as an empty one.
+     *
+     * @param file      index file
+     * @param format    name of the hash format of the walk, see {@link FileHasher#format}
+     * @param rehash    if true, recorded hashes are never used, but the index is still rewritten on {@link #save}
+     *
+     * @return loaded index
+     */
+    public static HashCache load(Path file, String format, boolean rehash) {
+        Map<String, Entry> entries = new ConcurrentHashMap<>();
+        if (!rehash && Files.exists(file)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), format, entries);
+            } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+                System.err.println("Ignoring hash cache " + file + ": " + e.getMessage());
+                entries.clear();
+            }
+        }
+        return new HashCache(file, format, rehash, entries);
+    }
+
+    private static void read(ByteBuffer buffer, String format, Map<String, Entry> entries) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IllegalArgumentException("unknown format");
+        }
+        String name = readString(buffer);
+        if (!name.equals(format)) {
+            throw new IllegalArgumentException("hashes are " + name + ", not " + format);
+        }
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            String path = readString(buffer);
+            long size = buffer.getLong();
+            long mtime = buffer.getLong();
+            String fileKey = readString(buffer);
+            entries.put(path, new Entry(size, mtime, fileKey, readBytes(buffer)));
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("corrupted length " + length + " at offset " + (buffer.position() - 4));
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        return new String(readBytes(buffer), StandardCharsets.UTF_8);
+    }
+
+    public String format() {
+        return format;
+    }
+
+    /**
+     * Returns the recorded hash of the file if the file was not changed since the last run. Files found
+     * unchanged are kept in the index on {@link #save}.
+     *
+     * @param path       file to look up
+     * @param attributes attributes of the file
+     *
+     * @return digest of the file or {@code null} if it must be hashed
+     */
+    public byte[] lookup(Path path, BasicFileAttributes attributes) {
+        if (rehash) return null;
+        String key = path.toAbsolutePath().toString();
+        Entry recorded = previous.get(key);
+        if (recorded == null || !recorded.sameFile(new Entry(attributes, null))) {
+            return null;
+        }
+        current.put(key, recorded);
+        return recorded.hash;
+    }
+
+    /**
+     * Records freshly computed hash of the file.
+     *
+     * @param path       hashed file
+     * @param attributes attributes of the file, read before hashing
+     * @param digest     digest of the file
+     */
+    public void record(Path path, BasicFileAttributes attributes, byte[] digest) {
+        current.put(path.toAbsolutePath().toString(), new Entry(attributes, digest));
+    }
+
+    /**
+     * Atomically replaces the index file with the files hashed during this run.
+     *
+     * @throws IOException if index can't be written
+     */
+    public void save() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp),
+                1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, format);
+            out.writeInt(current.size());
+            for (Map.Entry<String, Entry> e : current.entrySet()) {
+                Entry entry = e.getValue();
+                writeString(out, e.getKey());
+                out.writeLong(entry.size);
+                out.writeLong(entry.mtime);
+                writeString(out, entry.fileKey);
+                writeBytes(out, entry.hash);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        writeBytes(out, s.getBytes(StandardCharsets.UTF_8));
+    }
+}
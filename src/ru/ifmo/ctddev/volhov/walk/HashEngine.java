@@ -0,0 +1,122 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Bulk hashing of files.
+ * <p>
+ * Files are read through a {@link java.nio.channels.FileChannel} into a large heap buffer, that is reused by
+ * every file hashed on the same thread, and the whole buffer is passed to the {@link Hasher}. Files of at least
+ * {@link #MAP_THRESHOLD} bytes are mapped into memory region by region instead, and every region is passed to the
+ * hasher as it is, without copying. Hashers are kept per thread as well.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class HashEngine {
+    /**
+     * Size of the per-thread read buffer.
+     */
+    public static final int BUFFER_SIZE = 1 << 18;
+
+    /**
+     * Files of this size or larger are memory-mapped.
+     */
+    public static final long MAP_THRESHOLD = 1 << 24;
+
+    /**
+     * Size of a single mapped region of a large file.
+     */
+    public static final long MAP_REGION = 1 << 26;
+
+    private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal.withInitial(
+            () -> ByteBuffer.allocate(BUFFER_SIZE));
+    private static final ThreadLocal<Hasher[]> HASHERS = ThreadLocal.withInitial(
+            () -> new Hasher[HashAlgorithm.values().length]);
+
+    private HashEngine() {
+    }
+
+    /**
+     * Returns the hasher of the given algorithm, owned by the current thread.
+     */
+    static Hasher hasher(HashAlgorithm algorithm) {
+        Hasher[] hashers = HASHERS.get();
+        if (hashers[algorithm.ordinal()] == null) {
+            hashers[algorithm.ordinal()] = algorithm.create();
+        }
+        return hashers[algorithm.ordinal()];
+    }
+
+    /**
+     * Returns the read buffer owned by the current thread.
+     */
+    static ByteBuffer buffer() {
+        return BUFFERS.get();
+    }
+
+    /**
+     * Computes digest of the file.
+     *
+     * @param path      file to hash
+     * @param algorithm hash algorithm
+     *
+     * @return digest of the file contents
+     * @throws IOException if file can't be read
+     */
+    public static byte[] hash(Path path, HashAlgorithm algorithm) throws IOException {
+        return hashPrefix(path, algorithm, Long.MAX_VALUE);
+    }
+
+    /**
+     * Computes digest of the first bytes of the file.
+     *
+     * @param path      file to hash
+     * @param algorithm hash algorithm
+     * @param length    maximum number of bytes to hash
+     *
+     * @return digest of the first {@code length} bytes of the file, or of the whole file if it is shorter
+     * @throws IOException if file can't be read
+     */
+    public static byte[] hashPrefix(Path path, HashAlgorithm algorithm, long length) throws IOException {
+        Hasher hasher = hasher(algorithm);
+        hasher.reset();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAP_THRESHOLD && length >= MAP_THRESHOLD) {
+                hashMapped(channel, Math.min(size, length), hasher);
+            } else {
+                hashRead(channel, length, BUFFERS.get(), hasher);
+            }
+        }
+        byte[] digest = new byte[hasher.digestLength()];
+        hasher.digest(digest, 0);
+        return digest;
+    }
+
+    private static void hashRead(FileChannel channel, long length, ByteBuffer buffer, Hasher hasher)
+            throws IOException {
+        while (length > 0) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), length));
+            int read = channel.read(buffer);
+            if (read == -1) break;
+            length -= read;
+            buffer.flip();
+            hasher.update(buffer);
+        }
+    }
+
+    private static void hashMapped(FileChannel channel, long size, Hasher hasher) throws IOException {
+        for (long position = 0; position < size; position += MAP_REGION) {
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(MAP_REGION, size - position));
+            hasher.update(region);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Streaming hash function. Data is fed with {@link #update} in any number of pieces, {@link #digest}
+ * finishes the computation and resets the hasher, so one instance can hash many files in a row.
+ * <p>
+ * Implementations are not thread-safe.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ * @see HashAlgorithm
+ */
+public interface Hasher {
+    /**
+     * Discards all the data fed so far.
+     */
+    void reset();
+
+    /**
+     * Feeds the remaining bytes of the buffer, leaving its position at the limit.
+     *
+     * @param buffer data to hash
+     */
+    void update(ByteBuffer buffer);
+
+    /**
+     * @return length of the digest in bytes
+     */
+    int digestLength();
+
+    /**
+     * Writes big-endian digest of the data fed since the last reset to the array and resets the hasher.
+     *
+     * @param out    array to write digest to
+     * @param offset position of the first digest byte in the array
+     */
+    void digest(byte[] out, int offset);
+}
@@ -10,35 +10,52 @@ import java.nio.file.attribute.BasicFileAttributes;
  */
 
 public class HashsumFileVisitor extends SimpleFileVisitor<Path> {
-    final private OutputStreamWriter out;
+    final private DigestSink out;
+    final private FileHasher hasher;
 
-    public HashsumFileVisitor(OutputStreamWriter out) {
+    public HashsumFileVisitor(DigestSink out) {
+        this(out, new FileHasher(HashAlgorithm.FNV32, null));
+    }
+
+    /**
+     * @param out    sink to put output lines to
+     * @param hasher hasher of the files
+     */
+    public HashsumFileVisitor(DigestSink out, FileHasher hasher) {
         this.out = out;
+        this.hasher = hasher;
     }
 
     @Override
     public FileVisitResult visitFile(Path path, BasicFileAttributes basicFileAttributes) throws IOException {
 //        System.out.println("Visiting file: " + path.toString());
-        try (FileInputStream inputStream
-                     = new FileInputStream(path.toAbsolutePath().toString())) {
-            int hash = 0x811c9dc5;
-            while (true) {
-                int b = inputStream.read();
-                if (b == -1) break;
-                hash *= 0x01000193;
-                hash ^= b & 0xff;
-            }
-            out.write(String.format("%8s", Integer.toHexString(hash)).replace(' ', '0') + " " + path.toString() + "\n");
+        out.write(hashOrFailed(path, basicFileAttributes, hasher), path);
+        return FileVisitResult.CONTINUE;
+    }
+
+    /**
+     * Computes hash of the file. If the file can't be read, the zero hash is returned
+     * and the error is reported to stderr.
+     */
+    static byte[] hashOrFailed(Path path, BasicFileAttributes attributes, FileHasher hasher) {
+        try {
+            return hasher.hash(path, attributes);
         } catch (IOException e) {
             System.err.println("Error while calculating hashsum: " + e.getMessage());
-            out.write("00000000 " + path.toString() + "\n");
+            hasher.stats().failedHash();
+            return hasher.failed();
         }
-        return FileVisitResult.CONTINUE;
     }
 
     @Override
     public FileVisitResult visitFileFailed(Path path, IOException e) throws IOException {
-        out.write("00000000 " + path.toString() + "\n");
+        out.write(hasher.failed(), path);
+        reportFailure(path, e, hasher.stats());
+        return FileVisitResult.CONTINUE;
+    }
+
+    static void reportFailure(Path path, IOException e, WalkStats stats) {
+        stats.failedVisit();
         if (Files.notExists(path)) {
             System.err.println("File does not exist: " + path);
         } else if (Files.isReadable(path)) {
@@ -46,6 +63,5 @@ public class HashsumFileVisitor extends SimpleFileVisitor<Path> {
         } else {
             System.err.println("File visit error: " + e.getMessage());
         }
-        return FileVisitResult.CONTINUE;
     }
 }
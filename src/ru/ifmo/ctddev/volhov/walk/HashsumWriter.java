@@ -0,0 +1,169 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Output sink of the walk, writing lines of {@code "hex-digest path\n"} in UTF-8.
+ * <p>
+ * Lines are formatted straight into one reusable byte buffer: digest bytes are turned into hex digits by table
+ * lookup and characters of the path are encoded by hand, so there are no hex strings, concatenations or encoder
+ * buffers. The only allocation of a line is the string of its path: {@link Path} gives no access to its encoded
+ * name without allocating, and encoding the name elements or caching the encoded parent directory takes more
+ * garbage (new paths for the parent and the name) than one {@link Path#toString}. The buffer goes to the
+ * underlying stream only when it is full, on {@link #flush} and on {@link #close}.
+ * <p>
+ * The class is not thread-safe.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class HashsumWriter implements DigestSink, Flushable {
+    /**
+     * Default size of the buffer.
+     */
+    public static final int BUFFER_SIZE = 1 << 20;
+
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+    private static final int MAX_CHAR_BYTES = 4;
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int count = 0;
+    private long drained = 0;
+
+    public HashsumWriter(OutputStream out) {
+        this(out, BUFFER_SIZE);
+    }
+
+    /**
+     * @param out        stream to write to
+     * @param bufferSize size of the buffer, at least 16 bytes
+     */
+    public HashsumWriter(OutputStream out, int bufferSize) {
+        if (bufferSize < 16) throw new IllegalArgumentException("Buffer is too small");
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Writes the line for one file. The path is encoded from its string.
+     *
+     * @param digest digest of the file
+     * @param path   path to the file
+     *
+     * @throws IOException if underlying stream fails
+     */
+    @Override
+    public void write(byte[] digest, Path path) throws IOException {
+        writeHex(digest);
+        ensure(1);
+        buffer[count++] = ' ';
+        writeChars(path.toString());
+        ensure(1);
+        buffer[count++] = '\n';
+    }
+
+    /**
+     * Writes digest as lowercase hex digits.
+     */
+    public void writeHex(byte[] digest) throws IOException {
+        for (byte b : digest) {
+            ensure(2);
+            buffer[count++] = HEX[(b >> 4) & 0xf];
+            buffer[count++] = HEX[b & 0xf];
+        }
+    }
+
+    /**
+     * Writes characters of the string in UTF-8, unpaired surrogates are written as {@code '?'}.
+     */
+    public void writeChars(CharSequence s) throws IOException {
+        for (int i = 0, length = s.length(); i < length; i++) {
+            ensure(MAX_CHAR_BYTES);
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer[count++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[count++] = (byte) (0xc0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                buffer[count++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                buffer[count++] = '?';
+            } else {
+                buffer[count++] = (byte) (0xe0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    /**
+     * Writes bytes as they are, e.g. an already encoded path.
+     */
+    public void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+        if (length > buffer.length) {
+            drain();
+            out.write(bytes, offset, length);
+            drained += length;
+            return;
+        }
+        ensure(length);
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+    }
+
+    /**
+     * Copies contents of the file, e.g. output of another walk, to the output.
+     *
+     * @param file file to copy
+     *
+     * @throws IOException if file can't be read or output fails
+     */
+    public void copy(Path file) throws IOException {
+        drain();
+        drained += Files.copy(file, out);
+    }
+
+    /**
+     * @return number of bytes written so far, including the buffered ones
+     */
+    public long position() {
+        return drained + count;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (count + bytes > buffer.length) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, count);
+        drained += count;
+        count = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of non-negative values with power-of-two buckets: bucket {@code i} counts values
+ * of {@code [2^(i-1), 2^i)}, bucket {@code 0} counts zeros. Recording is a couple of atomic increments,
+ * percentiles are precise up to the bucket, that is up to a factor of two.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class Histogram {
+    private final AtomicLongArray buckets = new AtomicLongArray(65);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+        count.increment();
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Returns the upper bound of the bucket, that holds the given percentile.
+     *
+     * @param percentile percentile in {@code [0, 100]}
+     *
+     * @return upper bound of values below the percentile, {@code 0} if nothing was recorded
+     */
+    public long percentile(double percentile) {
+        long[] snapshot = snapshot();
+        long total = 0;
+        for (long c : snapshot) total += c;
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank && seen > 0) {
+                return i == 0 ? 0 : Math.min(max(), i == 64 ? Long.MAX_VALUE : (1L << i) - 1);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return counts of all buckets
+     */
+    public long[] snapshot() {
+        long[] result = new long[buckets.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = buckets.get(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,151 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Hashes files as Merkle trees of fixed-size chunks, so one large file is hashed by all threads of a pool.
+ * <p>
+ * The file is split into chunks of {@code chunkSize} bytes (the last one may be shorter, an empty file is one empty
+ * chunk). Every chunk is a leaf with digest {@code H(0x00 || chunk)}, and a node covering {@code n > 1} chunks has
+ * digest {@code H(0x01 || left || right)}, where the left subtree covers the largest power of two of chunks less
+ * than {@code n}, as in RFC 6962. {@code H} is the selected {@link HashAlgorithm}. Chunks are read with positional
+ * reads of one shared {@link FileChannel} and hashed in a {@link ForkJoinPool}.
+ * <p>
+ * Digests don't match the plain digests of the same algorithm, even for files of one chunk, so the format has its
+ * own name ({@link #formatName}), e.g. {@code merkle-4m-xxhash64}.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class MerkleHasher {
+    /**
+     * Default size of a chunk.
+     */
+    public static final long DEFAULT_CHUNK_SIZE = 1 << 22;
+
+    private static final ByteBuffer LEAF = ByteBuffer.wrap(new byte[]{0});
+    private static final ByteBuffer NODE = ByteBuffer.wrap(new byte[]{1});
+
+    private final HashAlgorithm algorithm;
+    private final long chunkSize;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param algorithm hash algorithm of leaves and nodes
+     * @param chunkSize size of a chunk in bytes, a positive multiple of 1 MiB
+     * @param pool      pool to hash chunks of large files on
+     */
+    public MerkleHasher(HashAlgorithm algorithm, long chunkSize, ForkJoinPool pool) {
+        if (chunkSize <= 0 || chunkSize % (1 << 20) != 0) {
+            throw new IllegalArgumentException("Chunk size must be a positive number of megabytes");
+        }
+        this.algorithm = algorithm;
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+    }
+
+    public HashAlgorithm algorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return name of the format, that includes the chunk size and the algorithm
+     */
+    public String formatName() {
+        return "merkle-" + (chunkSize >> 20) + "m-" + algorithm.algorithmName;
+    }
+
+    /**
+     * Computes the root digest of the file.
+     *
+     * @param path file to hash
+     *
+     * @return digest of the file contents
+     * @throws IOException if file can't be read
+     */
+    public byte[] hash(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunks = Math.max(1, (size + chunkSize - 1) / chunkSize);
+            if (chunks == 1) {
+                return leaf(channel, 0, size);
+            }
+            try {
+                return pool.invoke(new Subtree(channel, size, 0, chunks));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private byte[] leaf(FileChannel channel, long position, long end) throws IOException {
+        Hasher hasher = HashEngine.hasher(algorithm);
+        hasher.reset();
+        hasher.update(LEAF.duplicate());
+        ByteBuffer buffer = HashEngine.buffer();
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read == -1) break;
+            position += read;
+            buffer.flip();
+            hasher.update(buffer);
+        }
+        return digest(hasher);
+    }
+
+    private byte[] node(byte[] left, byte[] right) {
+        Hasher hasher = HashEngine.hasher(algorithm);
+        hasher.reset();
+        hasher.update(NODE.duplicate());
+        hasher.update(ByteBuffer.wrap(left));
+        hasher.update(ByteBuffer.wrap(right));
+        return digest(hasher);
+    }
+
+    private static byte[] digest(Hasher hasher) {
+        byte[] digest = new byte[hasher.digestLength()];
+        hasher.digest(digest, 0);
+        return digest;
+    }
+
+    private class Subtree extends RecursiveTask<byte[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long size;
+        private final long from;
+        private final long to;
+
+        Subtree(FileChannel channel, long size, long from, long to) {
+            this.channel = channel;
+            this.size = size;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected byte[] compute() {
+            if (to - from == 1) {
+                try {
+                    return leaf(channel, from * chunkSize, Math.min(size, to * chunkSize));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            long split = from + Long.highestOneBit(to - from - 1);
+            Subtree left = new Subtree(channel, size, from, split);
+            left.fork();
+            byte[] right = new Subtree(channel, size, split, to).compute();
+            return node(left.join(), right);
+        }
+    }
+}
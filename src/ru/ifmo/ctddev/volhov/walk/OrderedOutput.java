@@ -0,0 +1,72 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Window of files whose digests are being computed concurrently, kept in visit order.
+ * <p>
+ * Results are written from the head of the window only, so the output is the same as if the files were hashed
+ * one by one. When the window is full, {@link #add} waits for its head to complete, so no more than
+ * {@code window} results are kept in memory. The window itself is used by the traversing thread only.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class OrderedOutput {
+    private final DigestSink out;
+    private final int window;
+    private final ArrayDeque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+    private final ArrayDeque<Path> paths = new ArrayDeque<>();
+
+    /**
+     * @param out    sink to put output lines to
+     * @param window maximum number of files hashed ahead of the output
+     */
+    public OrderedOutput(DigestSink out, int window) {
+        if (window < 1) throw new IllegalArgumentException("Window must be greater than zero");
+        this.out = out;
+        this.window = window;
+    }
+
+    /**
+     * Appends the file to the window, writing completed results from its head if the window is full.
+     *
+     * @param path   path to the file
+     * @param digest future digest of the file
+     *
+     * @throws IOException if output fails
+     */
+    public void add(Path path, CompletableFuture<byte[]> digest) throws IOException {
+        pending.addLast(digest);
+        paths.addLast(path);
+        while (pending.size() > window) {
+            writeHead();
+        }
+    }
+
+    /**
+     * Waits for all pending files and writes their results.
+     *
+     * @throws IOException if output fails
+     */
+    public void finish() throws IOException {
+        while (!pending.isEmpty()) {
+            writeHead();
+        }
+    }
+
+    private void writeHead() throws IOException {
+        try {
+            out.write(pending.removeFirst().get(), paths.removeFirst());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for hashsum", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Hashing task failed", e.getCause());
+        }
+    }
+}
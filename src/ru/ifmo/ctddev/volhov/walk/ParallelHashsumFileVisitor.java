@@ -0,0 +1,71 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * File visitor that hashes files concurrently on the given {@link java.util.concurrent.Executor}
+ * (usually a {@link java.util.concurrent.ForkJoinPool}), while the tree itself is traversed by the calling thread.
+ * <p>
+ * Results go through {@link OrderedOutput}, so the output is the same as the one produced by
+ * {@link HashsumFileVisitor} on the same tree.
+ * <p>
+ * One visitor can be used for several roots in a row; {@link #finish} must be called after the last one.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class ParallelHashsumFileVisitor extends SimpleFileVisitor<Path> {
+    private final OrderedOutput out;
+    private final Executor executor;
+    private final FileHasher hasher;
+
+    /**
+     * @param out      sink to put output lines to
+     * @param executor executor to hash files on
+     * @param window   maximum number of files hashed ahead of the output
+     * @param hasher   hasher of the files
+     */
+    public ParallelHashsumFileVisitor(DigestSink out, Executor executor, int window, FileHasher hasher) {
+        this(new OrderedOutput(out, window), executor, hasher);
+    }
+
+    /**
+     * @param out      window to put results to, may be shared by several visitors used one after another
+     * @param executor executor to hash files on
+     * @param hasher   hasher of the files
+     */
+    public ParallelHashsumFileVisitor(OrderedOutput out, Executor executor, FileHasher hasher) {
+        this.out = out;
+        this.executor = executor;
+        this.hasher = hasher;
+    }
+
+    @Override
+    public FileVisitResult visitFile(Path path, BasicFileAttributes basicFileAttributes) throws IOException {
+        out.add(path, CompletableFuture.supplyAsync(
+                () -> HashsumFileVisitor.hashOrFailed(path, basicFileAttributes, hasher), executor));
+        return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFileFailed(Path path, IOException e) throws IOException {
+        HashsumFileVisitor.reportFailure(path, e, hasher.stats());
+        out.add(path, CompletableFuture.completedFuture(hasher.failed()));
+        return FileVisitResult.CONTINUE;
+    }
+
+    /**
+     * Waits for all pending files and writes their results.
+     *
+     * @throws IOException if output fails
+     */
+    public void finish() throws IOException {
+        out.finish();
+    }
+}
@@ -1,8 +1,16 @@
 package ru.ifmo.ctddev.volhov.walk;
 
 import java.io.*;
+import java.nio.file.FileVisitor;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * @author volhov
@@ -11,32 +19,206 @@ import java.nio.file.Paths;
 
 public class RecursiveWalk {
     public static void main(String[] args) {
-        if (args == null || args.length != 2 || args[0] == null || args[1] == null) {
-            System.err.println("format: Walk input output");
+        WalkOptions options;
+        try {
+            options = WalkOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(WalkOptions.USE);
             return;
         }
 
-        try (BufferedReader br = Files.newBufferedReader(Paths.get(args[0]))) {
-            try (OutputStreamWriter out = new OutputStreamWriter(new FileOutputStream(args[1]))) {
-                while (true) {
-                    String curr = null;
-                    try {
-                        curr = br.readLine();
-                    } catch (IOException e) {
-                        System.out.println("Error while reading input file: " + e.getMessage());
-                    }
-                    if (curr == null) break;
-                    Files.walkFileTree(Paths.get(curr), new HashsumFileVisitor(out));
+        // hashing pool of the walk, chunks of large files are hashed on it too, so it has a thread per core
+        // even if files are hashed one at a time
+        ForkJoinPool pool = !usesPool(options) ? null : new ForkJoinPool(options.merkleChunk == 0 ? options.threads
+                : Math.max(options.threads, Runtime.getRuntime().availableProcessors()));
+        WalkStats stats = new WalkStats();
+        stats.register();
+        MerkleHasher merkle = options.merkleChunk == 0 ? null
+                : new MerkleHasher(options.algorithm, (long) options.merkleChunk << 20, pool);
+        String format = FileHasher.format(options.algorithm, merkle);
+        try (BufferedReader br = Files.newBufferedReader(Paths.get(options.input))) {
+            try (DigestSink out = openOutput(options, format)) {
+                // text output, or a snapshot if the walk writes one
+                HashsumWriter text = out instanceof HashsumWriter ? (HashsumWriter) out : null;
+                SnapshotWriter snapshot = out instanceof SnapshotWriter ? (SnapshotWriter) out : null;
+                CheckpointWriter checkpoints = out instanceof CheckpointWriter ? (CheckpointWriter) out : null;
+                Checkpoint resumed = checkpoints == null ? null : checkpoints.resumed();
+                HashCache cache = options.cache == null ? null
+                        : HashCache.load(Paths.get(options.cache), format, options.rehash);
+                ScheduledExecutorService reporter = options.statsPeriod > 0
+                        ? stats.startReporting(options.statsPeriod) : null;
+                FileHasher hasher = new FileHasher(options.algorithm, merkle, cache, stats);
+                if (merkle != null && resumed == null && text != null) {
+                    text.writeChars("# " + hasher.format() + "\n");
+                }
+                WalkWatcher watcher = options.watch ? new WalkWatcher(hasher, options.threads) : null;
+                if (options.dedup) {
+                    findDuplicates(br, text, options, hasher, pool);
+                } else if (options.rotationalThreads > 0) {
+                    walkByDevice(br, text, options, hasher);
+                } else if (options.reads > 0) {
+                    walkAsync(br, out, options, hasher, pool, watcher, resumed);
+                } else if (options.threads > 1) {
+                    walkParallel(br, out, options, hasher, pool, watcher, resumed);
+                } else {
+                    walk(br, out, hasher, watcher, resumed);
+                }
+                if (resumed != null) {
+                    resumed.finish();
+                }
+                if (watcher != null) {
+                    text.flush();
+                    watchUntilShutdown(watcher, text);
+                }
+                if (cache != null) {
+                    saveCache(cache, options);
+                }
+                if (reporter != null) {
+                    reporter.shutdownNow();
+                    System.err.println(stats.getSummary());
+                }
+                if (checkpoints != null) {
+                    checkpoints.complete();
+                }
+                if (snapshot != null) {
+                    snapshot.complete();
                 }
             } catch (FileNotFoundException e) {
-                System.out.println("Can't open output file " + args[1] + ": " + e.getMessage());
+                System.out.println("Can't open output file " + options.output + ": " + e.getMessage());
+            } catch (Checkpoint.MismatchException e) {
+                System.out.println("Can't resume walk from " + options.checkpoint + ": " + e.getMessage());
             } catch (IOException e) {
                 System.out.println("Couldn't close output file: " + e.getMessage());
             }
         } catch (FileNotFoundException e) {
-            System.out.println("Can't open input file " + args[0] + ": " + e.getMessage());
+            System.out.println("Can't open input file " + options.input + ": " + e.getMessage());
         } catch (IOException e) {
             System.out.println("Couldn't close input file: " + e.getMessage());
+        } finally {
+            stats.unregister();
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Checks if the walk hashes anything on a fork-join pool: chunks of files, or files in parallel or
+     * asynchronous mode, or candidates for duplicates. Walks by device have their own pools.
+     */
+    private static boolean usesPool(WalkOptions options) {
+        if (options.merkleChunk > 0) return true;
+        if (options.dedup) return options.threads > 1;
+        return options.rotationalThreads == 0 && (options.reads > 0 || options.threads > 1);
+    }
+
+    private static DigestSink openOutput(WalkOptions options, String format) throws IOException {
+        if (options.snapshot) {
+            return new SnapshotWriter(Paths.get(options.output), format, options.algorithm.create().digestLength(),
+                    SnapshotWriter.DEFAULT_RUN_BYTES);
+        }
+        if (options.checkpoint == null) {
+            return new HashsumWriter(new FileOutputStream(options.output));
+        }
+        return CheckpointWriter.open(Paths.get(options.output), Paths.get(options.checkpoint),
+                Paths.get(options.input).toAbsolutePath().toString(), format, options.checkpointInterval);
+    }
+
+    private static String nextRoot(BufferedReader br) {
+        try {
+            return br.readLine();
+        } catch (IOException e) {
+            System.out.println("Error while reading input file: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void saveCache(HashCache cache, WalkOptions options) {
+        try {
+            cache.save();
+        } catch (IOException e) {
+            System.out.println("Couldn't save hash cache " + options.cache + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the watcher until the JVM is asked to shut down, then lets the caller save the cache and close output.
+     */
+    private static void watchUntilShutdown(WalkWatcher watcher, HashsumWriter out) throws IOException {
+        Thread main = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                watcher.close();
+                main.join();
+            } catch (IOException | InterruptedException e) {
+                System.err.println("Couldn't stop watching: " + e.getMessage());
+            }
+        }));
+        watcher.run(out);
+    }
+
+    private static FileVisitor<Path> decorate(Path root, FileVisitor<Path> visitor, FileHasher hasher,
+                                              WalkWatcher watcher, Checkpoint resumed) {
+        FileVisitor<Path> result = new StatsFileVisitor(visitor, hasher.stats());
+        if (resumed != null) {
+            result = new SkippingFileVisitor(result, resumed);
+        }
+        return watcher == null ? result : watcher.watch(root, result);
+    }
+
+    private static void walk(BufferedReader br, DigestSink out, FileHasher hasher,
+                             WalkWatcher watcher, Checkpoint resumed) throws IOException {
+        for (String curr = nextRoot(br); curr != null; curr = nextRoot(br)) {
+            Path root = Paths.get(curr);
+            Files.walkFileTree(root, decorate(root, new HashsumFileVisitor(out, hasher), hasher, watcher, resumed));
+        }
+    }
+
+    private static void findDuplicates(BufferedReader br, HashsumWriter out, WalkOptions options,
+                                       FileHasher hasher, ForkJoinPool pool) throws IOException {
+        DuplicateFinder finder = new DuplicateFinder(hasher, options.threads > 1 ? pool : null);
+        for (String curr = nextRoot(br); curr != null; curr = nextRoot(br)) {
+            finder.walk(Paths.get(curr));
+        }
+        finder.write(out);
+    }
+
+    private static void walkByDevice(BufferedReader br, HashsumWriter out, WalkOptions options,
+                                     FileHasher hasher) throws IOException {
+        List<Path> roots = new ArrayList<>();
+        for (String curr = nextRoot(br); curr != null; curr = nextRoot(br)) {
+            roots.add(Paths.get(curr));
+        }
+        new DeviceScheduler(hasher, options.threads, options.rotationalThreads, options.window)
+                .walk(roots, Paths.get(options.output), out);
+    }
+
+    private static void walkAsync(BufferedReader br, DigestSink out, WalkOptions options, FileHasher hasher,
+                                  ForkJoinPool hashPool, WalkWatcher watcher, Checkpoint resumed)
+            throws IOException {
+        ExecutorService ioExecutor = Executors.newFixedThreadPool(options.reads);
+        try {
+            AsyncHashsumFileVisitor visitor = new AsyncHashsumFileVisitor(out, hasher, ioExecutor, hashPool,
+                    options.reads, options.window);
+            for (String curr = nextRoot(br); curr != null; curr = nextRoot(br)) {
+                Path root = Paths.get(curr);
+                Files.walkFileTree(root, decorate(root, visitor, hasher, watcher, resumed));
+            }
+            visitor.finish();
+        } finally {
+            ioExecutor.shutdownNow();
+        }
+    }
+
+    private static void walkParallel(BufferedReader br, DigestSink out, WalkOptions options, FileHasher hasher,
+                                     ForkJoinPool pool, WalkWatcher watcher, Checkpoint resumed)
+            throws IOException {
+        ParallelHashsumFileVisitor visitor = new ParallelHashsumFileVisitor(out, pool, options.window, hasher);
+        for (String curr = nextRoot(br); curr != null; curr = nextRoot(br)) {
+            Path root = Paths.get(curr);
+            Files.walkFileTree(root, decorate(root, visitor, hasher, watcher, resumed));
         }
+        visitor.finish();
     }
 }
@@ -0,0 +1,53 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitor;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Visitor decorator of a resumed walk, that passes over the files already written before the {@link Checkpoint}.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class SkippingFileVisitor implements FileVisitor<Path> {
+    private final FileVisitor<Path> visitor;
+    private final Checkpoint checkpoint;
+
+    /**
+     * @param visitor    visitor of the walk
+     * @param checkpoint checkpoint to resume from, may be shared by visitors of several roots
+     */
+    public SkippingFileVisitor(FileVisitor<Path> visitor, Checkpoint checkpoint) {
+        this.visitor = visitor;
+        this.checkpoint = checkpoint;
+    }
+
+    @Override
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        return visitor.preVisitDirectory(dir, attrs);
+    }
+
+    @Override
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        if (checkpoint.skip(file)) {
+            return FileVisitResult.CONTINUE;
+        }
+        return visitor.visitFile(file, attrs);
+    }
+
+    @Override
+    public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+        if (checkpoint.skip(file)) {
+            return FileVisitResult.CONTINUE;
+        }
+        return visitor.visitFileFailed(file, exc);
+    }
+
+    @Override
+    public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+        return visitor.postVisitDirectory(dir, exc);
+    }
+}
@@ -0,0 +1,92 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Compares two snapshots written by {@link RecursiveWalk} with option {@code -b}.
+ * <p>
+ * Both snapshots are sorted by path, so they are merged in one streaming pass, holding a single entry of each
+ * in memory. Differences are written in the format of the watch mode:
+ * <pre>
+ * A hex-digest path    file appeared in the new snapshot
+ * M hex-digest path    file has another digest in the new snapshot
+ * D path               file is missing from the new snapshot
+ * </pre>
+ * Lines go in the order of paths, and the numbers of added, changed and removed files are printed to stderr.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class SnapshotDiff {
+    public final static String USE = "Use: SnapshotDiff old-snapshot new-snapshot output";
+
+    public static void main(String[] args) {
+        if (args == null || args.length != 3 || args[0] == null || args[1] == null || args[2] == null) {
+            System.err.println(USE);
+            return;
+        }
+        try (SnapshotReader older = SnapshotReader.open(Paths.get(args[0]));
+             SnapshotReader newer = SnapshotReader.open(Paths.get(args[1]))) {
+            if (!older.format().equals(newer.format())) {
+                System.out.println("Snapshots have different hash formats: " + older.format() + " and "
+                        + newer.format());
+                return;
+            }
+            try (HashsumWriter out = new HashsumWriter(new FileOutputStream(args[2]))) {
+                long[] counts = diff(older, newer, out);
+                System.err.println("added " + counts[0] + ", changed " + counts[1] + ", removed " + counts[2]);
+            }
+        } catch (IOException e) {
+            System.out.println("Couldn't compare snapshots: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes differences between the snapshots.
+     *
+     * @param older old snapshot
+     * @param newer new snapshot
+     * @param out   sink to write lines to
+     *
+     * @return numbers of added, changed and removed files
+     * @throws IOException if snapshots can't be read or output fails
+     */
+    public static long[] diff(SnapshotReader older, SnapshotReader newer, HashsumWriter out) throws IOException {
+        long[] counts = new long[3];
+        boolean hasOld = older.next();
+        boolean hasNew = newer.next();
+        while (hasOld || hasNew) {
+            int order = !hasOld ? 1 : !hasNew ? -1 : SnapshotWriter.compare(older.path(), newer.path());
+            if (order > 0) {
+                write(out, "A ", newer.digest(), newer.path());
+                counts[0]++;
+                hasNew = newer.next();
+            } else if (order < 0) {
+                write(out, "D ", null, older.path());
+                counts[2]++;
+                hasOld = older.next();
+            } else {
+                if (!Arrays.equals(older.digest(), newer.digest())) {
+                    write(out, "M ", newer.digest(), newer.path());
+                    counts[1]++;
+                }
+                hasOld = older.next();
+                hasNew = newer.next();
+            }
+        }
+        return counts;
+    }
+
+    private static void write(HashsumWriter out, String tag, byte[] digest, byte[] path) throws IOException {
+        out.writeChars(tag);
+        if (digest != null) {
+            out.writeHex(digest);
+            out.writeChars(" ");
+        }
+        out.writeBytes(path, 0, path.length);
+        out.writeChars("\n");
+    }
+}
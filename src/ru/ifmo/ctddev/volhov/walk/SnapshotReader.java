@@ -0,0 +1,111 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Sequential reader of a snapshot written by {@link SnapshotWriter}.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class SnapshotReader implements Closeable {
+    /**
+     * Longest UTF-8 path of an entry, longer lengths are taken for corruption.
+     */
+    static final int MAX_PATH_LENGTH = 1 << 20;
+    private static final int MAX_NAME_LENGTH = 1 << 10;
+    private static final int MAX_DIGEST_LENGTH = 1 << 10;
+
+    private final DataInputStream in;
+    private final String format;
+    private final int digestLength;
+    private byte[] path;
+    private byte[] digest;
+
+    SnapshotReader(DataInputStream in, String format, int digestLength) {
+        this.in = in;
+        this.format = format;
+        this.digestLength = digestLength;
+    }
+
+    /**
+     * Opens the snapshot and reads its header.
+     *
+     * @param file snapshot file
+     *
+     * @return reader positioned before the first entry
+     * @throws IOException if file can't be read or is not a snapshot
+     */
+    public static SnapshotReader open(Path file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+        try {
+            if (in.readInt() != SnapshotWriter.MAGIC || in.readInt() != SnapshotWriter.VERSION) {
+                throw new IOException(file + " is not a walk snapshot");
+            }
+            byte[] name = new byte[checkLength(in.readInt(), MAX_NAME_LENGTH)];
+            in.readFully(name);
+            int digestLength = checkLength(in.readInt(), MAX_DIGEST_LENGTH);
+            return new SnapshotReader(in, new String(name, StandardCharsets.UTF_8), digestLength);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    private static int checkLength(int length, int max) throws IOException {
+        if (length < 0 || length > max) throw new IOException("corrupted snapshot: length " + length);
+        return length;
+    }
+
+    /**
+     * @return name of the hash format of the snapshot
+     */
+    public String format() {
+        return format;
+    }
+
+    /**
+     * Reads the next entry.
+     *
+     * @return false if there are no more entries
+     * @throws IOException if snapshot can't be read or is truncated
+     */
+    public boolean next() throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            path = null;
+            digest = null;
+            return false;
+        }
+        path = new byte[checkLength(length, MAX_PATH_LENGTH)];
+        in.readFully(path);
+        digest = new byte[digestLength];
+        in.readFully(digest);
+        return true;
+    }
+
+    /**
+     * @return UTF-8 path of the current entry
+     */
+    public byte[] path() {
+        return path;
+    }
+
+    /**
+     * @return digest of the current entry
+     */
+    public byte[] digest() {
+        return digest;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
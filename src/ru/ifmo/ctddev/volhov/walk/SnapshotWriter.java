@@ -0,0 +1,239 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Output sink writing a binary snapshot of the walk: digests of files sorted by path, so that two snapshots can be
+ * compared in one streaming pass by {@link SnapshotDiff}.
+ * <p>
+ * The snapshot starts with a header of magic, version, hash format name and digest length, followed by entries of
+ * {@code (path length, UTF-8 path, digest)} in unsigned byte order of paths, and ends with path length {@code -1}.
+ * Paths that were visited twice (e.g. by overlapping roots) are written once.
+ * <p>
+ * Entries are sorted externally: they are collected in memory up to {@code runBytes}, sorted and spilled to
+ * temporary run files next to the output, and the runs are merged by {@link #complete}, which writes the snapshot
+ * to a temporary file and moves it over the output. Memory use is bounded by {@code runBytes} during the walk and
+ * by one buffer per run during the merge. A snapshot closed without {@link #complete}, e.g. of a failed walk, is
+ * discarded: the output is left untouched and run files are removed.
+ * <p>
+ * The class is not thread-safe.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class SnapshotWriter implements DigestSink {
+    /**
+     * Default amount of memory for entries collected before spilling.
+     */
+    public static final long DEFAULT_RUN_BYTES = 1 << 26;
+
+    static final int MAGIC = 0x57534e31; // "WSN1"
+    static final int VERSION = 1;
+
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final Comparator<Entry> BY_PATH = (a, b) -> compare(a.path, b.path);
+
+    private final Path output;
+    private final Path directory;
+    private final String format;
+    private final int digestLength;
+    private final long runBytes;
+    private final List<Path> runs = new ArrayList<>();
+    private final byte[] scratch = new byte[4];
+    private List<Entry> entries = new ArrayList<>();
+    private long memory = 0;
+
+    private static class Entry {
+        final byte[] path;
+        final byte[] digest;
+
+        Entry(byte[] path, byte[] digest) {
+            this.path = path;
+            this.digest = digest;
+        }
+    }
+
+    /**
+     * @param output       snapshot file, written by {@link #complete}
+     * @param format       name of the hash format, see {@link FileHasher#format}
+     * @param digestLength length of digests in bytes
+     * @param runBytes     amount of memory for entries collected before spilling
+     *
+     * @throws IOException if directory of the snapshot is not writable
+     */
+    public SnapshotWriter(Path output, String format, int digestLength, long runBytes) throws IOException {
+        this.output = output;
+        this.directory = output.toAbsolutePath().getParent();
+        if (!Files.isDirectory(directory) || !Files.isWritable(directory)) {
+            throw new IOException("Can't write to directory " + directory);
+        }
+        this.format = format;
+        this.digestLength = digestLength;
+        this.runBytes = runBytes;
+    }
+
+    /**
+     * Compares byte strings as unsigned bytes.
+     */
+    static int compare(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            if (a[i] != b[i]) {
+                return (a[i] & 0xff) - (b[i] & 0xff);
+            }
+        }
+        return a.length - b.length;
+    }
+
+    @Override
+    public void write(byte[] digest, Path path) throws IOException {
+        if (entries == null) throw new IllegalStateException("Snapshot is complete");
+        if (digest.length != digestLength) {
+            throw new IllegalArgumentException("Digest of " + path + " has " + digest.length + " bytes");
+        }
+        byte[] bytes = path.toString().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > SnapshotReader.MAX_PATH_LENGTH) {
+            throw new IOException("Path is too long for a snapshot: " + path);
+        }
+        entries.add(new Entry(bytes, digest));
+        memory += bytes.length + digest.length + ENTRY_OVERHEAD;
+        if (memory >= runBytes) {
+            spill();
+        }
+    }
+
+    private void spill() throws IOException {
+        entries.sort(BY_PATH);
+        Path run = Files.createTempFile(directory, "walk", ".run");
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run),
+                1 << 16))) {
+            for (Entry entry : entries) {
+                out.writeInt(entry.path.length);
+                out.write(entry.path);
+                out.write(entry.digest);
+            }
+            out.writeInt(-1);
+        }
+        entries = new ArrayList<>();
+        memory = 0;
+    }
+
+    /**
+     * Sorts collected entries, merges them with the spilled runs and replaces the output with the snapshot
+     * atomically. Nothing can be written afterwards.
+     *
+     * @throws IOException if run files can't be read or output fails
+     */
+    public void complete() throws IOException {
+        if (entries == null) throw new IllegalStateException("Snapshot is complete");
+        if (!runs.isEmpty() && !entries.isEmpty()) {
+            spill();
+        }
+        Path temp = Files.createTempFile(directory, "walk", ".snapshot");
+        try (HashsumWriter out = new HashsumWriter(Files.newOutputStream(temp))) {
+            writeInt(out, MAGIC);
+            writeInt(out, VERSION);
+            byte[] name = format.getBytes(StandardCharsets.UTF_8);
+            writeInt(out, name.length);
+            out.writeBytes(name, 0, name.length);
+            writeInt(out, digestLength);
+            if (runs.isEmpty()) {
+                entries.sort(BY_PATH);
+                byte[] previous = null;
+                for (Entry entry : entries) {
+                    if (previous == null || compare(previous, entry.path) != 0) {
+                        writeEntry(out, entry.path, entry.digest);
+                    }
+                    previous = entry.path;
+                }
+            } else {
+                merge(out);
+            }
+            writeInt(out, -1);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        entries = null;
+        Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Removes run files; the output is written only if the snapshot was completed before.
+     *
+     * @throws IOException if run files can't be removed
+     */
+    @Override
+    public void close() throws IOException {
+        entries = null;
+        IOException failure = null;
+        for (Path run : runs) {
+            try {
+                Files.deleteIfExists(run);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        runs.clear();
+        if (failure != null) throw failure;
+    }
+
+    private void merge(HashsumWriter out) throws IOException {
+        PriorityQueue<SnapshotReader> queue = new PriorityQueue<>(Math.max(1, runs.size()),
+                (a, b) -> compare(a.path(), b.path()));
+        List<SnapshotReader> readers = new ArrayList<>();
+        try {
+            for (Path run : runs) {
+                SnapshotReader reader = new SnapshotReader(new DataInputStream(new BufferedInputStream(
+                        Files.newInputStream(run), 1 << 16)), format, digestLength);
+                readers.add(reader);
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+            byte[] previous = null;
+            while (!queue.isEmpty()) {
+                SnapshotReader reader = queue.poll();
+                byte[] path = reader.path();
+                if (previous == null || compare(previous, path) != 0) {
+                    writeEntry(out, path, reader.digest());
+                }
+                previous = path;
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+        } finally {
+            for (SnapshotReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private void writeEntry(HashsumWriter out, byte[] path, byte[] digest) throws IOException {
+        writeInt(out, path.length);
+        out.writeBytes(path, 0, path.length);
+        out.writeBytes(digest, 0, digest.length);
+    }
+
+    private void writeInt(HashsumWriter out, int value) throws IOException {
+        scratch[0] = (byte) (value >>> 24);
+        scratch[1] = (byte) (value >>> 16);
+        scratch[2] = (byte) (value >>> 8);
+        scratch[3] = (byte) value;
+        out.writeBytes(scratch, 0, 4);
+    }
+}
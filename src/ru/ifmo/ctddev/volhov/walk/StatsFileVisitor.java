@@ -0,0 +1,59 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitor;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+
+/**
+ * Visitor decorator recording fan-out of the visited directories to {@link WalkStats}.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class StatsFileVisitor implements FileVisitor<Path> {
+    private final FileVisitor<Path> visitor;
+    private final WalkStats stats;
+    private final ArrayDeque<long[]> entries = new ArrayDeque<>();
+
+    public StatsFileVisitor(FileVisitor<Path> visitor, WalkStats stats) {
+        this.visitor = visitor;
+        this.stats = stats;
+    }
+
+    private void count() {
+        if (!entries.isEmpty()) {
+            entries.peek()[0]++;
+        }
+    }
+
+    @Override
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        count();
+        FileVisitResult result = visitor.preVisitDirectory(dir, attrs);
+        if (result == FileVisitResult.CONTINUE) {
+            entries.push(new long[1]);
+        }
+        return result;
+    }
+
+    @Override
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        count();
+        return visitor.visitFile(file, attrs);
+    }
+
+    @Override
+    public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+        count();
+        return visitor.visitFileFailed(file, exc);
+    }
+
+    @Override
+    public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+        stats.directory(entries.pop()[0]);
+        return visitor.postVisitDirectory(dir, exc);
+    }
+}
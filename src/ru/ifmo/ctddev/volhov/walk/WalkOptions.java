@@ -0,0 +1,192 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+/**
+ * Command line options of {@link RecursiveWalk}. Options go before the two positional arguments,
+ * without any options the walk behaves exactly as the plain sequential one.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class WalkOptions {
+    public final static String USE = "Use: RecursiveWalk [-j threads] [-q reads] [-l rotational-threads] [-a algorithm] [-c cache [-f]] [-d] [-s seconds] [-w] [-m chunk-megabytes] [-r checkpoint [-i seconds]] [-b] input output";
+
+    /**
+     * Number of hashing threads, {@code 1} means sequential walk. Chunks of files hashed as Merkle trees are
+     * hashed by at least as many threads as there are cores.
+     */
+    public int threads = 1;
+
+    /**
+     * Maximum number of files hashed ahead of the output in parallel mode.
+     */
+    public int window = 4096;
+
+    /**
+     * Number of asynchronous reads in flight, {@code 0} means asynchronous I/O is not used.
+     */
+    public int reads = 0;
+
+    /**
+     * Number of hashing threads per rotational disk, {@code 0} means roots are not scheduled by device.
+     */
+    public int rotationalThreads = 0;
+
+    /**
+     * Hash algorithm of the walk.
+     */
+    public HashAlgorithm algorithm = HashAlgorithm.FNV32;
+
+    /**
+     * Hash cache file, {@code null} if cache is not used.
+     */
+    public String cache;
+
+    /**
+     * Ignore hashes recorded in the cache and rehash every file.
+     */
+    public boolean rehash = false;
+
+    /**
+     * Write groups of duplicate files instead of hashes of all files.
+     */
+    public boolean dedup = false;
+
+    /**
+     * Period of statistics reports to stderr in seconds, {@code 0} means no reports.
+     */
+    public int statsPeriod = 0;
+
+    /**
+     * Keep running after the walk and write delta lines for changed files.
+     */
+    public boolean watch = false;
+
+    /**
+     * Size of Merkle tree chunks in megabytes, {@code 0} means files are hashed plainly.
+     * Option {@code -m 0} selects {@link MerkleHasher#DEFAULT_CHUNK_SIZE}.
+     */
+    public int merkleChunk = 0;
+
+    /**
+     * Checkpoint file to resume the walk from and to save its position to, {@code null} if walk is not resumable.
+     */
+    public String checkpoint;
+
+    /**
+     * Minimum time between checkpoints in seconds.
+     */
+    public int checkpointInterval = 30;
+
+    /**
+     * Write a binary snapshot sorted by path instead of the text output.
+     */
+    public boolean snapshot = false;
+
+    public String input;
+    public String output;
+
+    /**
+     * Parses command line arguments.
+     *
+     * @param args command line arguments
+     *
+     * @return parsed options
+     * @throws IllegalArgumentException if arguments are malformed
+     */
+    public static WalkOptions parse(String[] args) {
+        if (args == null) throw new IllegalArgumentException("No arguments given");
+        WalkOptions options = new WalkOptions();
+        int i = 0;
+        for (; i < args.length && args[i] != null && args[i].startsWith("-") && args[i].length() > 1; i++) {
+            String option = args[i];
+            switch (option) {
+                case "-j":
+                    options.threads = intArgument(args, ++i, option);
+                    if (options.threads == 0) {
+                        options.threads = Runtime.getRuntime().availableProcessors();
+                    }
+                    break;
+                case "-q":
+                    options.reads = intArgument(args, ++i, option);
+                    break;
+                case "-l":
+                    options.rotationalThreads = intArgument(args, ++i, option);
+                    break;
+                case "-a":
+                    options.algorithm = HashAlgorithm.forName(argument(args, ++i, option));
+                    break;
+                case "-c":
+                    options.cache = argument(args, ++i, option);
+                    break;
+                case "-f":
+                    options.rehash = true;
+                    break;
+                case "-d":
+                    options.dedup = true;
+                    break;
+                case "-s":
+                    options.statsPeriod = intArgument(args, ++i, option);
+                    break;
+                case "-w":
+                    options.watch = true;
+                    break;
+                case "-m":
+                    options.merkleChunk = intArgument(args, ++i, option);
+                    if (options.merkleChunk == 0) {
+                        options.merkleChunk = (int) (MerkleHasher.DEFAULT_CHUNK_SIZE >> 20);
+                    }
+                    break;
+                case "-r":
+                    options.checkpoint = argument(args, ++i, option);
+                    break;
+                case "-i":
+                    options.checkpointInterval = intArgument(args, ++i, option);
+                    break;
+                case "-b":
+                    options.snapshot = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + option);
+            }
+        }
+        if (options.watch && (options.dedup || options.rotationalThreads > 0)) {
+            throw new IllegalArgumentException("Option -w can't be used with -d or -l");
+        }
+        if (options.rotationalThreads > 0 && options.reads > 0) {
+            throw new IllegalArgumentException("Option -l can't be used with -q");
+        }
+        if (options.merkleChunk > 0 && (options.dedup || options.reads > 0)) {
+            throw new IllegalArgumentException("Option -m can't be used with -d or -q");
+        }
+        if (options.checkpoint != null && (options.watch || options.dedup || options.rotationalThreads > 0)) {
+            throw new IllegalArgumentException("Option -r can't be used with -w, -d or -l");
+        }
+        if (options.snapshot && (options.watch || options.dedup || options.rotationalThreads > 0
+                || options.checkpoint != null)) {
+            throw new IllegalArgumentException("Option -b can't be used with -w, -d, -l or -r");
+        }
+        if (args.length - i != 2 || args[i] == null || args[i + 1] == null) {
+            throw new IllegalArgumentException("Input and output files must be specified");
+        }
+        options.input = args[i];
+        options.output = args[i + 1];
+        return options;
+    }
+
+    private static String argument(String[] args, int i, String option) {
+        if (i >= args.length || args[i] == null) {
+            throw new IllegalArgumentException("Option " + option + " requires an argument");
+        }
+        return args[i];
+    }
+
+    private static int intArgument(String[] args, int i, String option) {
+        try {
+            int value = Integer.parseInt(argument(args, i, option));
+            if (value < 0) throw new IllegalArgumentException("Option " + option + " must be non-negative");
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option " + option + " expects a number: " + e.getMessage());
+        }
+    }
+}
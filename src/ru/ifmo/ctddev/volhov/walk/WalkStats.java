@@ -0,0 +1,225 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms of a walk: hashed and cached files, bytes read, failed visits, per-file hash latency
+ * and directory fan-out. All the methods are safe to call from any thread.
+ * <p>
+ * Statistics can be published as a JMX MBean with {@link #register} and printed to stderr periodically with
+ * {@link #startReporting}. Comparing the number of busy cores ({@link #getCpuCores}) with the number of hashing
+ * threads tells I/O-bound runs (few busy cores, high hash latency) from CPU-bound ones.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class WalkStats implements WalkStatsMBean {
+    public static final String OBJECT_NAME = "ru.ifmo.ctddev.volhov.walk:type=WalkStats";
+
+    private final long start = System.nanoTime();
+    private final long startCpu = processCpuTime();
+    private final LongAdder filesHashed = new LongAdder();
+    private final LongAdder filesCached = new LongAdder();
+    private final LongAdder bytesHashed = new LongAdder();
+    private final LongAdder failedVisits = new LongAdder();
+    private final LongAdder failedHashes = new LongAdder();
+    private final Histogram hashLatency = new Histogram();
+    private final Histogram fanOut = new Histogram();
+
+    /**
+     * Records a file read and hashed.
+     *
+     * @param bytes   size of the file
+     * @param elapsed time spent on the file in nanoseconds
+     */
+    public void hashed(long bytes, long elapsed) {
+        filesHashed.increment();
+        bytesHashed.add(bytes);
+        hashLatency.record(elapsed / 1000);
+    }
+
+    /**
+     * Records a file whose hash was taken from the cache.
+     */
+    public void cached() {
+        filesCached.increment();
+    }
+
+    /**
+     * Records a file that couldn't be visited.
+     */
+    public void failedVisit() {
+        failedVisits.increment();
+    }
+
+    /**
+     * Records a file that couldn't be read.
+     */
+    public void failedHash() {
+        failedHashes.increment();
+    }
+
+    /**
+     * Records a visited directory.
+     *
+     * @param entries number of entries in the directory
+     */
+    public void directory(long entries) {
+        fanOut.record(entries);
+    }
+
+    @Override
+    public long getFilesHashed() {
+        return filesHashed.sum();
+    }
+
+    @Override
+    public long getFilesCached() {
+        return filesCached.sum();
+    }
+
+    @Override
+    public long getBytesHashed() {
+        return bytesHashed.sum();
+    }
+
+    @Override
+    public long getFailedVisits() {
+        return failedVisits.sum();
+    }
+
+    @Override
+    public long getFailedHashes() {
+        return failedHashes.sum();
+    }
+
+    @Override
+    public long getDirectories() {
+        return fanOut.count();
+    }
+
+    private double seconds() {
+        return Math.max(1, System.nanoTime() - start) / 1e9;
+    }
+
+    @Override
+    public double getFilesPerSecond() {
+        return (getFilesHashed() + getFilesCached()) / seconds();
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return getBytesHashed() / seconds();
+    }
+
+    @Override
+    public double getHashLatencyMean() {
+        return hashLatency.mean();
+    }
+
+    @Override
+    public long getHashLatencyP50() {
+        return hashLatency.percentile(50);
+    }
+
+    @Override
+    public long getHashLatencyP99() {
+        return hashLatency.percentile(99);
+    }
+
+    @Override
+    public long getHashLatencyMax() {
+        return hashLatency.max();
+    }
+
+    @Override
+    public long[] getHashLatencyHistogram() {
+        return hashLatency.snapshot();
+    }
+
+    @Override
+    public double getFanOutMean() {
+        return fanOut.mean();
+    }
+
+    @Override
+    public long getFanOutMax() {
+        return fanOut.max();
+    }
+
+    @Override
+    public long[] getFanOutHistogram() {
+        return fanOut.snapshot();
+    }
+
+    @Override
+    public double getCpuCores() {
+        long cpu = processCpuTime();
+        return cpu < 0 || startCpu < 0 ? -1 : (cpu - startCpu) / 1e9 / seconds();
+    }
+
+    private static long processCpuTime() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    @Override
+    public String getSummary() {
+        return String.format("%.1fs: %d files (%d cached, %.0f/s), %.1f MB/s, failed %d visits %d reads, "
+                        + "latency us p50 %d p99 %d max %d, %d dirs fan-out mean %.1f max %d, cpu %.1f cores",
+                seconds(), getFilesHashed() + getFilesCached(), getFilesCached(), getFilesPerSecond(),
+                getBytesPerSecond() / (1 << 20), getFailedVisits(), getFailedHashes(),
+                getHashLatencyP50(), getHashLatencyP99(), getHashLatencyMax(),
+                getDirectories(), getFanOutMean(), getFanOutMax(), getCpuCores());
+    }
+
+    /**
+     * Registers statistics in the platform MBean server under {@link #OBJECT_NAME}.
+     */
+    public void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Couldn't register walk statistics MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Removes statistics registered by {@link #register} from the platform MBean server, so the next walk in the
+     * same JVM can register its own.
+     */
+    public void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Couldn't unregister walk statistics MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prints the summary to stderr every {@code period} seconds until the returned executor is shut down.
+     *
+     * @param period period of reports in seconds
+     *
+     * @return executor printing the reports
+     */
+    public ScheduledExecutorService startReporting(int period) {
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "walk-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> System.err.println(getSummary()), period, period, TimeUnit.SECONDS);
+        return reporter;
+    }
+}
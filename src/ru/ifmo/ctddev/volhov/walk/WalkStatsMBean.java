@@ -0,0 +1,49 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+/**
+ * Management interface of {@link WalkStats}. Latencies are in microseconds, rates are averaged
+ * from the start of the walk.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public interface WalkStatsMBean {
+    long getFilesHashed();
+
+    long getFilesCached();
+
+    long getBytesHashed();
+
+    long getFailedVisits();
+
+    long getFailedHashes();
+
+    long getDirectories();
+
+    double getFilesPerSecond();
+
+    double getBytesPerSecond();
+
+    double getHashLatencyMean();
+
+    long getHashLatencyP50();
+
+    long getHashLatencyP99();
+
+    long getHashLatencyMax();
+
+    long[] getHashLatencyHistogram();
+
+    double getFanOutMean();
+
+    long getFanOutMax();
+
+    long[] getFanOutHistogram();
+
+    /**
+     * @return average number of processor cores busy with the walk, or {@code -1} if unknown
+     */
+    double getCpuCores();
+
+    String getSummary();
+}
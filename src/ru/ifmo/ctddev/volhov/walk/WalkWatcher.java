@@ -0,0 +1,310 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Keeps the output of a finished walk up to date by watching the walked directories with a {@link WatchService}
+ * and rehashing only the files that were created or modified.
+ * <p>
+ * Directories are registered while the initial walk visits them (see {@link #watch}), so no second traversal
+ * is needed. Events are collected until the tree is quiet for {@link #QUIET_PERIOD} milliseconds (but not longer
+ * than {@link #MAX_DELAY}), so a file written in many chunks is hashed once. Every batch is written as delta lines
+ * and flushed:
+ * <pre>
+ * A hex-digest path    file was created
+ * M hex-digest path    file was modified or replaced
+ * D path               file or directory was deleted
+ * </pre>
+ * Files of a created directory are reported as created. Deleted directory is reported by one line with its own
+ * path. If the watch service loses events of a directory (overflow), the whole directory is rehashed and its files
+ * are reported as modified; deletions lost this way are not reported. With a hash cache rescans are cheap, since
+ * unchanged files are not read.
+ * <p>
+ * Registration and {@link #run} must happen in one thread; {@link #close} can be called from any thread.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class WalkWatcher implements Closeable {
+    /**
+     * Time without events after which a batch of changes is processed, in milliseconds.
+     */
+    public static final long QUIET_PERIOD = 200;
+
+    /**
+     * Maximum time changes are collected before processing, in milliseconds.
+     */
+    public static final long MAX_DELAY = 5000;
+
+    private final WatchService service;
+    private final FileHasher hasher;
+    private final int threads;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Map<Path, WatchKey> keys = new HashMap<>();
+    private final Map<WatchKey, Map<Path, Path>> files = new HashMap<>();
+
+    private static class Change {
+        final WatchEvent.Kind<?> first;
+
+        Change(WatchEvent.Kind<?> first) {
+            this.first = first;
+        }
+    }
+
+    private static class Delta {
+        final String tag;
+        final Path path;
+        final CompletableFuture<byte[]> digest;
+
+        Delta(String tag, Path path, CompletableFuture<byte[]> digest) {
+            this.tag = tag;
+            this.path = path;
+            this.digest = digest;
+        }
+    }
+
+    /**
+     * @param hasher  hasher of the files
+     * @param threads number of hashing threads, {@code 1} means changed files are hashed in the watching thread
+     *
+     * @throws IOException if watch service can't be created
+     */
+    public WalkWatcher(FileHasher hasher, int threads) throws IOException {
+        this.service = FileSystems.getDefault().newWatchService();
+        this.hasher = hasher;
+        this.threads = threads;
+    }
+
+    /**
+     * Prepares watching of the root and returns visitor of its initial walk, that registers visited directories.
+     *
+     * @param root    root of the walk
+     * @param visitor visitor of the walk
+     *
+     * @return visitor registering directories and delegating to the given one
+     */
+    public FileVisitor<Path> watch(Path root, FileVisitor<Path> visitor) {
+        if (Files.exists(root, LinkOption.NOFOLLOW_LINKS) && !Files.isDirectory(root, LinkOption.NOFOLLOW_LINKS)) {
+            watchFile(root);
+        }
+        return new RegisteringVisitor(visitor);
+    }
+
+    private void register(Path dir) {
+        try {
+            WatchKey key = dir.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            directories.put(key, dir);
+            keys.put(dir, key);
+            files.remove(key);
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("Can't watch directory " + dir + ": " + e.getMessage());
+        }
+    }
+
+    private void watchFile(Path file) {
+        Path parent = file.toAbsolutePath().getParent();
+        try {
+            WatchKey key = parent.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            if (!directories.containsKey(key)) {
+                files.computeIfAbsent(key, k -> new HashMap<>()).put(file.getFileName(), file);
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("Can't watch file " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Processes changes until the watcher is closed or the thread is interrupted.
+     *
+     * @param out sink to write delta lines to
+     *
+     * @throws IOException if output fails
+     */
+    public void run(HashsumWriter out) throws IOException {
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Map<Path, Change> changes = new LinkedHashMap<>();
+                Set<Path> rescans = new LinkedHashSet<>();
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_DELAY);
+                while (key != null) {
+                    collect(key, changes, rescans);
+                    key = System.nanoTime() < deadline ? service.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS) : null;
+                }
+                write(apply(changes, rescans, pool), out);
+                out.flush();
+            }
+        } catch (ClosedWatchServiceException ignored) {
+            // closed by close()
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private void collect(WatchKey key, Map<Path, Change> changes, Set<Path> rescans) {
+        Path dir = directories.get(key);
+        Map<Path, Path> watchedFiles = files.getOrDefault(key, Collections.emptyMap());
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                if (dir != null) {
+                    rescans.add(dir);
+                } else {
+                    watchedFiles.values().forEach(file -> changes.putIfAbsent(file, new Change(ENTRY_MODIFY)));
+                }
+                continue;
+            }
+            Path name = (Path) event.context();
+            Path path = dir != null ? dir.resolve(name) : watchedFiles.get(name);
+            if (path != null) {
+                changes.putIfAbsent(path, new Change(event.kind()));
+            }
+        }
+        if (!key.reset()) {
+            keys.remove(directories.remove(key));
+            files.remove(key);
+        }
+    }
+
+    private List<Delta> apply(Map<Path, Change> changes, Set<Path> rescans, ForkJoinPool pool) throws IOException {
+        List<Delta> deltas = new ArrayList<>();
+        for (Map.Entry<Path, Change> entry : changes.entrySet()) {
+            Path path = entry.getKey();
+            boolean created = entry.getValue().first == ENTRY_CREATE;
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException e) {
+                forget(path);
+                if (!created) {
+                    deltas.add(new Delta("D ", path, null));
+                }
+                continue;
+            }
+            if (attributes.isDirectory()) {
+                if (created || !keys.containsKey(path)) {
+                    scan(path, "A ", deltas, pool);
+                }
+            } else {
+                deltas.add(new Delta(created ? "A " : "M ", path, hash(path, attributes, pool)));
+            }
+        }
+        for (Path dir : rescans) {
+            scan(dir, "M ", deltas, pool);
+        }
+        return deltas;
+    }
+
+    /**
+     * Registers directories of the subtree and hashes all its files.
+     */
+    private void scan(Path dir, String tag, List<Delta> deltas, ForkJoinPool pool) throws IOException {
+        Files.walkFileTree(dir, new StatsFileVisitor(new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                register(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                deltas.add(new Delta(tag, file, hash(file, attrs, pool)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                HashsumFileVisitor.reportFailure(file, e, hasher.stats());
+                return FileVisitResult.CONTINUE;
+            }
+        }, hasher.stats()));
+    }
+
+    private CompletableFuture<byte[]> hash(Path path, BasicFileAttributes attributes, ForkJoinPool pool) {
+        if (pool == null) {
+            return CompletableFuture.completedFuture(HashsumFileVisitor.hashOrFailed(path, attributes, hasher));
+        }
+        return CompletableFuture.supplyAsync(() -> HashsumFileVisitor.hashOrFailed(path, attributes, hasher), pool);
+    }
+
+    /**
+     * Stops watching the deleted directory and its subdirectories.
+     */
+    private void forget(Path deleted) {
+        for (Iterator<Map.Entry<Path, WatchKey>> it = keys.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Path, WatchKey> entry = it.next();
+            if (entry.getKey().startsWith(deleted)) {
+                entry.getValue().cancel();
+                directories.remove(entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    private static void write(List<Delta> deltas, HashsumWriter out) throws IOException {
+        for (Delta delta : deltas) {
+            out.writeChars(delta.tag);
+            if (delta.digest == null) {
+                out.writeChars(delta.path.toString());
+                out.writeChars("\n");
+            } else {
+                out.write(delta.digest.join(), delta.path);
+            }
+        }
+    }
+
+    /**
+     * Stops watching, {@link #run} returns after the current batch.
+     *
+     * @throws IOException if watch service fails to close
+     */
+    @Override
+    public void close() throws IOException {
+        service.close();
+    }
+
+    private class RegisteringVisitor implements FileVisitor<Path> {
+        private final FileVisitor<Path> visitor;
+
+        RegisteringVisitor(FileVisitor<Path> visitor) {
+            this.visitor = visitor;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+            FileVisitResult result = visitor.preVisitDirectory(dir, attrs);
+            if (result == FileVisitResult.CONTINUE) {
+                register(dir);
+            }
+            return result;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+            return visitor.visitFile(file, attrs);
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+            return visitor.visitFileFailed(file, exc);
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+            return visitor.postVisitDirectory(dir, exc);
+        }
+    }
+}
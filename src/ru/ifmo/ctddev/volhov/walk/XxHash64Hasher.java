@@ -0,0 +1,124 @@
+package ru.ifmo.ctddev.volhov.walk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Streaming xxHash64 with zero seed. Input is consumed in 32-byte stripes, the tail of every update that
+ * doesn't fill a stripe is kept until the next one.
+ *
+ * @author volhovm
+ *         Created on 10/16/26
+ */
+public class XxHash64Hasher implements Hasher {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private final ByteBuffer stripe = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+    private long v1, v2, v3, v4;
+    private long total;
+
+    public XxHash64Hasher() {
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        v1 = PRIME1 + PRIME2;
+        v2 = PRIME2;
+        v3 = 0;
+        v4 = -PRIME1;
+        total = 0;
+        stripe.clear();
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME1;
+    }
+
+    private static long merge(long acc, long v) {
+        acc ^= round(0, v);
+        return acc * PRIME1 + PRIME4;
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        total += buffer.remaining();
+        if (stripe.position() > 0) {
+            while (stripe.hasRemaining() && buffer.hasRemaining()) {
+                stripe.put(buffer.get());
+            }
+            if (stripe.hasRemaining()) return;
+            stripe.flip();
+            consume(stripe);
+            stripe.clear();
+        }
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        consume(buffer);
+        buffer.order(order);
+        stripe.put(buffer);
+    }
+
+    private void consume(ByteBuffer buffer) {
+        long a = v1, b = v2, c = v3, d = v4;
+        while (buffer.remaining() >= 32) {
+            a = round(a, buffer.getLong());
+            b = round(b, buffer.getLong());
+            c = round(c, buffer.getLong());
+            d = round(d, buffer.getLong());
+        }
+        v1 = a;
+        v2 = b;
+        v3 = c;
+        v4 = d;
+    }
+
+    @Override
+    public int digestLength() {
+        return 8;
+    }
+
+    @Override
+    public void digest(byte[] out, int offset) {
+        long hash;
+        if (total >= 32) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12)
+                    + Long.rotateLeft(v4, 18);
+            hash = merge(hash, v1);
+            hash = merge(hash, v2);
+            hash = merge(hash, v3);
+            hash = merge(hash, v4);
+        } else {
+            hash = v3 + PRIME5;
+        }
+        hash += total;
+        stripe.flip();
+        while (stripe.remaining() >= 8) {
+            hash ^= round(0, stripe.getLong());
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (stripe.remaining() >= 4) {
+            hash ^= (stripe.getInt() & 0xffffffffL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+        }
+        while (stripe.hasRemaining()) {
+            hash ^= (stripe.get() & 0xff) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        for (int i = 0; i < 8; i++) {
+            out[offset + i] = (byte) (hash >>> (56 - 8 * i));
+        }
+        reset();
+    }
+}